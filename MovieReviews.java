@@ -1,11 +1,29 @@
 package movieReviews;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * This program uses a collection of existing movie reviews from text files to
@@ -14,14 +32,41 @@ import java.util.Scanner;
  * algorithms that build models from sample inputs and use those models to make
  * predictions or decisions.
  * 
+ * More reviews can be added to a MovieReviews after it is built with
+ * addReview and addReviews. All the public methods are synchronized, so
+ * reviews can be added by one thread while others ask for scores.
+ * 
+ * The words occurring at least twice are kept in a ScoreIndex ordered by
+ * their scores, so mostPositive and mostNegative do not look through the
+ * whole collection. A word whose score changes is moved in the index the
+ * next time the index is used, once however many reviews it was in.
+ * 
  * @author Sanjeeb Sangraula
  *
  */
 
 public class MovieReviews {
 
-	// A map to store the keys of the words and the subsequent words
-	private Map<String, Word> wordsList;
+	// The words left out of every review because they carry no sentiment
+	private static final String[] STOPWORDS = { "but", "or", "and", "i", "you", "it", "he", "she", "we", "they", "a",
+			"an", "the" };
+	// The number of slots of the stopword table, a power of two well above
+	// the number of stopwords
+	private static final int STOPWORD_SLOTS = 64;
+	// The stopwords placed by their hash, so a word can be checked from its
+	// characters without making a String
+	private static final char[][] STOPWORD_TABLE = buildStopwordTable();
+	// The number of lines trained on by one task when training in parallel
+	private static final int CHUNK_LINES = 4096;
+
+	// A table to store the keys of the words with their scores and counts
+	private WordTable wordsList;
+	// An index of the words occurring at least twice ordered by their
+	// scores, kept up to date as reviews are added
+	private ScoreIndex scoreIndex;
+	// A map from the words whose scores changed since the score index was
+	// last brought up to date to the score and count they have in it
+	private Map<String, RankedWord> changedWords = new HashMap<>();
 
 	/**
 	 * A constructor that builds the word collection using the given
@@ -34,8 +79,51 @@ public class MovieReviews {
 	 */
 	public MovieReviews(String filename, int numberOfLines) {
 
-		this.wordsList = new HashMap<>();
+		this.wordsList = new WordTable();
 		this.readFile(filename, numberOfLines);
+		this.buildScoreIndex();
+	}
+
+	/**
+	 * A constructor that builds the word collection using the given number of
+	 * lines from the input file, training on several threads. Every thread
+	 * adds the lines it is given to a word collection of its own, and the
+	 * collections are added together at the end, so the word collection is
+	 * the same as the one built on a single thread.
+	 * 
+	 * @param filename
+	 *            the name of the file to input
+	 * @param numberOfLines
+	 *            the number of lines of the input file to read
+	 * @param threads
+	 *            the number of threads to train on
+	 */
+	public MovieReviews(String filename, int numberOfLines, int threads) {
+
+		this.wordsList = new WordTable();
+		if (threads <= 1) {
+			this.readFile(filename, numberOfLines);
+		} else {
+			this.readFileParallel(filename, numberOfLines, threads);
+		}
+		this.buildScoreIndex();
+	}
+
+	/**
+	 * A method to put every word of the collection occurring at least twice
+	 * in the score index. The index is built once after the input file is
+	 * read, and is then kept up to date by every review added.
+	 */
+	private void buildScoreIndex() {
+
+		this.scoreIndex = new ScoreIndex();
+
+		for (int slot = 0; slot < this.wordsList.capacity(); slot++) {
+			if (this.wordsList.getWord(slot) != null && this.wordsList.occursMoreThanTwice(slot)) {
+				this.scoreIndex.add(this.wordsList.getWord(slot), this.wordsList.getTotalScore(slot),
+						this.wordsList.getCount(slot));
+			}
+		}
 	}
 
 	/**
@@ -50,69 +138,216 @@ public class MovieReviews {
 	 */
 	private boolean readFile(String fileName, int numberOfLines) {
 
-		Scanner sc = null;
+		try (LineReader reader = new LineReader(fileName)) {
 
-		try {
-			sc = new Scanner(new File(fileName));
+			int lineNumber = 0;
+			String line;
+
+			while (lineNumber < numberOfLines && (line = reader.readLine()) != null) {
+				this.handleLineFromFile(line, this.wordsList);
+				lineNumber++;
+			}
 		} catch (FileNotFoundException e) {
 			return false;
 		}
+		return true;
+	}
+
+	/**
+	 * A method to read the input file and train on its lines on a
+	 * ForkJoinPool. The lines are read in chunks that are handed to the pool
+	 * as they are read, and only a few chunks are waiting at a time, so the
+	 * lines never have to be held all at once.
+	 * 
+	 * @param fileName
+	 *            the name of the text file to be read
+	 * @param numberOfLines
+	 *            the number of lines of the text file to read
+	 * @param threads
+	 *            the number of threads to train on
+	 * @return true if the file was opened successfully and false if the file
+	 *         could not be opened
+	 */
+	private boolean readFileParallel(String fileName, int numberOfLines, int threads) {
+
+		// every thread of the pool trains on a table of its own
+		List<WordTable> tables = new ArrayList<>();
+		ThreadLocal<WordTable> threadTable = ThreadLocal.withInitial(() -> {
+			WordTable table = new WordTable();
+			synchronized (tables) {
+				tables.add(table);
+			}
+			return table;
+		});
 
-		int lineNumber = 0;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		Deque<Future<?>> chunks = new ArrayDeque<>();
 
-		while (sc.hasNextLine() && lineNumber < numberOfLines) {
-			this.handleLineFromFile(sc.nextLine());
-			lineNumber++;
+		try (LineReader reader = new LineReader(fileName)) {
+
+			int lineNumber = 0;
+			boolean more = true;
+
+			while (more && lineNumber < numberOfLines) {
+
+				String[] lines = new String[Math.min(CHUNK_LINES, numberOfLines - lineNumber)];
+				int size = 0;
+				String line;
+				while (size < lines.length && (line = reader.readLine()) != null) {
+					lines[size++] = line;
+				}
+				more = size == lines.length;
+				lineNumber += size;
+
+				int chunkSize = size;
+				chunks.add(pool.submit(() -> {
+					WordTable table = threadTable.get();
+					for (int i = 0; i < chunkSize; i++) {
+						this.handleLineFromFile(lines[i], table);
+					}
+				}));
+
+				if (chunks.size() > 2 * threads) {
+					this.waitForChunk(chunks.poll());
+				}
+			}
+
+			while (!chunks.isEmpty()) {
+				this.waitForChunk(chunks.poll());
+			}
+		} catch (FileNotFoundException e) {
+			return false;
+		} finally {
+			pool.shutdownNow();
+		}
+
+		// the tasks are all done, so the tables are no longer changing
+		for (WordTable table : tables) {
+			this.wordsList.addAll(table);
 		}
 		return true;
 	}
 
+	/**
+	 * A method to wait until a chunk of lines has been trained on
+	 * 
+	 * @param chunk
+	 *            the task training on the chunk
+	 */
+	private void waitForChunk(Future<?> chunk) {
+
+		try {
+			chunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while training", e);
+		} catch (ExecutionException e) {
+			// a line that cannot be read fails the same way it does on a
+			// single thread
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Could not train", e.getCause());
+		}
+	}
+
 	/**
 	 * A method to handle the input line from the file
 	 * 
 	 * @param line
-	 *            a line from the file that is read by a scanner
+	 *            a line from the file
+	 * @param table
+	 *            the table to add the scores of the words of the line to
 	 */ 
-	private void handleLineFromFile(String line) {
+	private void handleLineFromFile(String line, WordTable table) {
 
 		// get the line score. The score is the first number in the line from
 		// file
 		int score = this.getScoreFromLine(line);
 
-		// remove the score from the line
-		line = this.removeScore(line);
+		// store the score of the valid words after the score. The spaces
+		// around the score never change the words found, so the line is not
+		// trimmed first
+		this.forEachValidWord(line, 1, word -> this.handleValidWord(table, score, word));
+	}
 
-		// get a list of valid words from the line
-		ArrayList<String> validWords = this.getValidWords(line);
+	/**
+	 * A method to handle a valid word. It increases the word count and adds
+	 * the score to the word.
+	 * 
+	 * @param table
+	 *            the table to add the score to
+	 * @param score
+	 *            the score of the line the word is in
+	 * @param word
+	 *            a valid word from the line
+	 */
+	private void handleValidWord(WordTable table, int score, String word) {
 
-		// store the score of the valid words from the file
-		this.handleValidWords(score, validWords);
+		// save the word in the wordList if it is new, and add the score to
+		// the word
+		String key = this.getKey(word);
+		int slot = table.addScore(key, score);
+
+		// once the index is built, the word is moved to its new place in it
+		// the next time the index is used, however many times it changes
+		// before then
+		if (this.scoreIndex != null && !this.changedWords.containsKey(key)) {
+			int count = table.getCount(slot) - 1;
+			this.changedWords.put(key, new RankedWord(key, (table.getScoreSum(slot) - score) / count, count));
+		}
 	}
 
 	/**
-	 * A method to handle the valid words. It increases the word count and adds
-	 * the score to the words.
+	 * A method to move every word whose score changed since the last call to
+	 * its new place in the score index
 	 * 
-	 * @param score
-	 *            the score of the words in the ArrayList
-	 * @param validWords
-	 *            an ArrayList of all the valid words from the line
+	 * @return the score index, up to date
 	 */
-	private void handleValidWords(int score, ArrayList<String> validWords) {
+	private ScoreIndex getScoreIndex() {
 
-		for (int i = 0; i < validWords.size(); i++) {
+		for (RankedWord old : this.changedWords.values()) {
 
-			String word = validWords.get(i);
+			if (old.occursMoreThanTwice()) {
+				this.scoreIndex.remove(old);
+			}
 
-			if (!this.wordsList.containsKey(this.getKey(word))) {
-				// save the word in the wordList
-				this.wordsList.put(this.getKey(word), new Word());
+			int slot = this.wordsList.find(old.getWord());
+			if (this.wordsList.occursMoreThanTwice(slot)) {
+				this.scoreIndex.add(old.getWord(), this.wordsList.getTotalScore(slot), this.wordsList.getCount(slot));
 			}
+		}
+		this.changedWords.clear();
+		return this.scoreIndex;
+	}
 
-			Word currentWord = this.wordsList.get(this.getKey(word));
+	/**
+	 * A method to train on one more review after the word collection is
+	 * built. The scores of its valid words are added straight to the word
+	 * collection, so wordScore, reviewScore, mostPositive and mostNegative
+	 * take the review into account as soon as this method returns.
+	 * 
+	 * @param score
+	 *            the score of the review
+	 * @param review
+	 *            the text of the review, without its score
+	 */
+	public synchronized void addReview(int score, String review) {
+		this.forEachValidWord(review, 0, word -> this.handleValidWord(this.wordsList, score, word));
+	}
+
+	/**
+	 * A method to train on a batch of reviews after the word collection is
+	 * built, each given as a line in the format of the input file: the score
+	 * as its first character followed by the text of the review
+	 * 
+	 * @param lines
+	 *            the lines of the reviews
+	 */
+	public synchronized void addReviews(Collection<String> lines) {
 
-			// add the score to the word
-			currentWord.addScore(score);
+		for (String line : lines) {
+			this.handleLineFromFile(line, this.wordsList);
 		}
 	}
 
@@ -130,57 +365,137 @@ public class MovieReviews {
 	}
 
 	/**
-	 * A method to get a list of valid words
+	 * A method to find the valid words of a line in one pass over its
+	 * characters. Only the letters, digits and spaces of the line are kept
+	 * and the letters are lowercased, so a word ends at a space and any other
+	 * character is dropped without ending the word. The words longer than two
+	 * characters that are not stopwords are valid.
 	 * 
 	 * @param line
-	 *            the line from which the list of valid words is to be found
-	 * @return an ArrayList of Strings that contain valid words
+	 *            the line from which the valid words are to be found
+	 * @param from
+	 *            the position in the line to start from
+	 * @param handler
+	 *            the handler given every valid word, in the order of the line
 	 */
-	private ArrayList<String> getValidWords(String line) {
+	private void forEachValidWord(String line, int from, WordHandler handler) {
+
+		char[] word = new char[Math.max(line.length() - from, 0)];
+		int length = 0;
+
+		for (int i = from; i < line.length(); i++) {
 
-		String[] filteredArray = line.replaceAll("[^a-zA-Z 0-9]", "").toLowerCase().split("\\s+");
+			char c = line.charAt(i);
 
-		return this.filterWordsArray(filteredArray);
+			if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+				word[length++] = c;
+			} else if (c >= 'A' && c <= 'Z') {
+				word[length++] = (char) (c + ('a' - 'A'));
+			} else if (c == ' ') {
+				this.handleWord(word, length, handler);
+				length = 0;
+			}
+		}
+		this.handleWord(word, length, handler);
 	}
 
 	/**
-	 * A method to filter an array of words, removing unwanted words like
-	 * Conjunctions.
+	 * A method to give a word to a handler if it is valid
 	 * 
-	 * @param array
-	 *            the array of words which is to be filtered
-	 * @return a new array of words that is filtered
+	 * @param word
+	 *            the characters of the word
+	 * @param length
+	 *            the number of characters in the word
+	 * @param handler
+	 *            the handler to give the word to
 	 */
-	private ArrayList<String> filterWordsArray(String[] array) {
-
-		ArrayList<String> words = new ArrayList<>();
-
-		for (int i = 0; i < array.length; i++) {
-			String word = array[i];
-			if (word.equals("but") || word.equals("or") || word.equals("and") || word.equals("i") || word.equals("you")
-					|| word.equals("it") || word.equals("he") || word.equals("she") || word.equals("we")
-					|| word.equals("they") || word.equals("a") || word.equals("an") || word.equals("the")) {
-				// don't add the words
-			} else {
-				// add the words
-				if (word.length() > 2) {
-					words.add(word);
-				}
+	private void handleWord(char[] word, int length, WordHandler handler) {
+
+		if (length > 2 && !isStopword(word, length)) {
+			handler.handleWord(new String(word, 0, length));
+		}
+	}
+
+	/**
+	 * A method to place the stopwords in a table by their hash
+	 * 
+	 * @return the table, with null in the free slots
+	 */
+	private static char[][] buildStopwordTable() {
+
+		char[][] table = new char[STOPWORD_SLOTS][];
+
+		for (String stopword : STOPWORDS) {
+			char[] chars = stopword.toCharArray();
+			int slot = hash(chars, chars.length);
+			while (table[slot] != null) {
+				slot = (slot + 1) & (STOPWORD_SLOTS - 1);
 			}
+			table[slot] = chars;
 		}
-		return words;
+		return table;
 	}
 
 	/**
-	 * A method to remove the score from a line. The score is the first
-	 * character in a line
+	 * A method to check whether a word is a stopword
 	 * 
-	 * @param line
-	 *            input string from which the score is to be removed
-	 * @return result after removing the score from the line
+	 * @param word
+	 *            the characters of the word
+	 * @param length
+	 *            the number of characters in the word
+	 * @return true if the word is a stopword
+	 */
+	private static boolean isStopword(char[] word, int length) {
+
+		for (int slot = hash(word, length); STOPWORD_TABLE[slot] != null; slot = (slot + 1) & (STOPWORD_SLOTS - 1)) {
+			if (Arrays.equals(STOPWORD_TABLE[slot], 0, STOPWORD_TABLE[slot].length, word, 0, length)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A method to find the slot of the stopword table a word hashes to
+	 * 
+	 * @param word
+	 *            the characters of the word
+	 * @param length
+	 *            the number of characters in the word
+	 * @return the slot
+	 */
+	private static int hash(char[] word, int length) {
+
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + word[i];
+		}
+		return (hash ^ (hash >>> 7)) & (STOPWORD_SLOTS - 1);
+	}
+
+	/**
+	 * A method to keep only the letters, digits and spaces of a word, with
+	 * the letters lowercased
+	 * 
+	 * @param word
+	 *            the word to clean
+	 * @return the cleaned word
 	 */
-	private String removeScore(String line) {
-		return line.substring(1).trim();
+	private String cleanWord(String word) {
+
+		StringBuilder clean = new StringBuilder(word.length());
+
+		for (int i = 0; i < word.length(); i++) {
+
+			char c = word.charAt(i);
+
+			if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == ' ') {
+				clean.append(c);
+			} else if (c >= 'A' && c <= 'Z') {
+				clean.append((char) (c + ('a' - 'A')));
+			}
+		}
+		return clean.toString();
 	}
 
 	/**
@@ -200,11 +515,21 @@ public class MovieReviews {
 	 *            the word whose score is to be returned
 	 * @return the average score of the word
 	 */
-	public double wordScore(String word) {
-		word = word.replaceAll("[^a-zA-Z 0-9]", "");
-		word = word.toLowerCase();
-		String key = this.getKey(word);
-		return this.wordsList.containsKey(key) ? this.wordsList.get(key).getTotalScore() : 2.0;
+	public synchronized double wordScore(String word) {
+		return this.validWordScore(this.cleanWord(word));
+	}
+
+	/**
+	 * A method to return the score associated with a word that is already
+	 * cleaned, or the neutral score (2.0) if it is not in the collection
+	 * 
+	 * @param word
+	 *            the cleaned word whose score is to be returned
+	 * @return the average score of the word
+	 */
+	private double validWordScore(String word) {
+		int slot = this.wordsList.find(this.getKey(word));
+		return slot >= 0 ? this.wordsList.getTotalScore(slot) : 2.0;
 	}
 
 	/**
@@ -216,216 +541,653 @@ public class MovieReviews {
 	 * 
 	 * @return the average score of the words from the string review
 	 */
-	public double reviewScore(String review) {
+	public synchronized double reviewScore(String review) {
 
-		ArrayList<String> words = this.getValidWords(review);
+		// the valid words are already clean, so they are scored directly
+		double[] score = { 0 };
+		int[] words = { 0 };
 
-		double score = 0;
-
-		for (int i = 0; i < words.size(); i++) {
-			score += this.wordScore(words.get(i));
-		}
-		return score / words.size();
+		this.forEachValidWord(review, 0, word -> {
+			score[0] += this.validWordScore(word);
+			words[0]++;
+		});
+		return score[0] / words[0];
 	}
 
 	/**
 	 * A method to return the word with the highest score in the collection, provided the
-	 * word occurs at least twice.
+	 * word occurs at least twice. Of the words with the highest score, the
+	 * one occurring most often is returned, and of those the first in
+	 * alphabetical order.
 	 * 
-	 * @return the word with the highest score
+	 * @return the word with the highest score, or an empty string if no word
+	 *         occurs twice
 	 */
-	public String mostPositive() {
+	public synchronized String mostPositive() {
+		return this.getScoreIndex().first(true);
+	}
 
-		ArrayList<String> highestScoresList = new ArrayList<String>();
+	/**
+	 * A method to return the word with the most negative or lowest score,
+	 * provided the word occurs at least twice. Of the words with the lowest
+	 * score, the one occurring most often is returned, and of those the first
+	 * in alphabetical order.
+	 * 
+	 * @return the word that has the most negative score, or an empty string
+	 *         if no word occurs twice
+	 */
+	public synchronized String mostNegative() {
+		return this.getScoreIndex().first(false);
+	}
 
-		ArrayList<String> frequentWordsList = new ArrayList<String>();
+	/**
+	 * A method to return the words with the highest scores in the collection
+	 * that occur at least twice, in the order mostPositive chooses between
+	 * them
+	 * 
+	 * @param number
+	 *            the number of words to return
+	 * @return the words with the highest scores, the highest first, with
+	 *         fewer than number words if fewer occur twice
+	 */
+	public synchronized List<String> mostPositive(int number) {
+		return this.getScoreIndex().first(true, number);
+	}
 
-		double currentScore = 0.0;
-		double highestScore = 0.0;
-		String highestScoreKey = "";
+	/**
+	 * A method to return the words with the lowest scores in the collection
+	 * that occur at least twice, in the order mostNegative chooses between
+	 * them
+	 * 
+	 * @param number
+	 *            the number of words to return
+	 * @return the words with the lowest scores, the lowest first, with fewer
+	 *         than number words if fewer occur twice
+	 */
+	public synchronized List<String> mostNegative(int number) {
+		return this.getScoreIndex().first(false, number);
+	}
 
-		boolean first = true;
+	/**
+	 * An interface for the code given the valid words of a line one at a
+	 * time
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	interface WordHandler {
 
-		for (String key : wordsList.keySet()) {
+		/**
+		 * A method to handle one valid word
+		 * 
+		 * @param word
+		 *            the valid word
+		 */
+		void handleWord(String word);
+	}
 
-			if (wordsList.get(key).occursMoreThanTwice()) {
+	/**
+	 * A class to read the lines of a file. The lines end where a Scanner ends
+	 * them, at \n, \r, \r\n, \u2028, \u2029 or \u0085, and the file is decoded
+	 * with the default charset. The bytes are decoded here rather than by a
+	 * Reader, so at the first bytes that cannot be decoded every line that
+	 * ends before them is still read, and the line holding them ends the
+	 * file without being read. The lines are split straight from a buffer of
+	 * characters, without the regular expressions of a Scanner.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class LineReader implements Closeable {
+
+		// An instance variable to hold the channel of the file
+		private FileChannel channel;
+		// An instance variable to hold the decoder of the default charset,
+		// which reports the bytes it cannot decode
+		private CharsetDecoder decoder = Charset.defaultCharset().newDecoder();
+		// An instance variable to hold the bytes read but not decoded yet
+		private ByteBuffer bytes = ByteBuffer.allocate(1 << 13);
+		// An instance variable to hold true once all the bytes of the file
+		// are read
+		private boolean endOfInput = false;
+		// An instance variable to hold the characters read but not split yet
+		private char[] buffer = new char[1 << 13];
+		// An instance variable to hold the position of the next character in
+		// the buffer
+		private int position = 0;
+		// An instance variable to hold the number of characters in the buffer
+		private int limit = 0;
+		// An instance variable to hold true once the end of the characters is
+		// reached, at the end of the file or at bytes that cannot be decoded
+		private boolean ended = false;
+		// An instance variable to hold true if the characters ended at bytes
+		// that cannot be decoded
+		private boolean malformed = false;
 
-				frequentWordsList.add(key);
+		/**
+		 * An argument constructor to create a new LineReader
+		 * 
+		 * @param fileName
+		 *            the name of the file to read
+		 * @throws FileNotFoundException
+		 *             if the file cannot be opened
+		 */
+		public LineReader(String fileName) throws FileNotFoundException {
+			this.channel = new FileInputStream(new File(fileName)).getChannel();
+			// the buffer starts empty
+			this.bytes.flip();
+		}
+
+		/**
+		 * A method to read the next line
+		 * 
+		 * @return the line without its line break, or null if there are no
+		 *         more lines
+		 */
+		public String readLine() {
 
-				currentScore = wordsList.get(key).getTotalScore();
+			StringBuilder line = null;
 
-				if (first) {
-					highestScore = currentScore;
-					highestScoreKey = key;
-					first = false;
+			while (true) {
+
+				if (this.position == this.limit && !this.fill()) {
+					// the last line may have no line break, but a line cut
+					// short by bytes that cannot be decoded is not read
+					return line == null || line.length() == 0 || this.malformed ? null : line.toString();
+				}
+
+				int start = this.position;
+				while (this.position < this.limit && !this.isLineBreak(this.buffer[this.position])) {
+					this.position++;
+				}
+
+				if (this.position == this.limit) {
+					if (line == null) {
+						line = new StringBuilder();
+					}
+					line.append(this.buffer, start, this.position - start);
 					continue;
 				}
 
-				if (currentScore > highestScore) {
-					highestScore = currentScore;
-					highestScoreKey = key;
+				String text = line == null ? new String(this.buffer, start, this.position - start)
+						: line.append(this.buffer, start, this.position - start).toString();
+
+				if (this.buffer[this.position++] == '\r') {
+					// \r\n is a single line break, even across two buffers
+					if (this.position < this.limit || this.fill()) {
+						if (this.buffer[this.position] == '\n') {
+							this.position++;
+						}
+					}
 				}
+				return text;
 			}
 		}
 
-		for (String word : frequentWordsList) {
-			if (this.wordsList.get(word).getTotalScore() == highestScore) {
-				highestScoresList.add(word);
+		/**
+		 * A method to check whether a character ends a line
+		 * 
+		 * @param c
+		 *            the character to check
+		 * @return true if the character is a line break
+		 */
+		private boolean isLineBreak(char c) {
+			return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+		}
+
+		/**
+		 * A method to read more characters into the empty buffer
+		 * 
+		 * @return true if characters were read, false at the end of the file
+		 *         or of the characters that can be decoded
+		 */
+		private boolean fill() {
+
+			CharBuffer chars = CharBuffer.wrap(this.buffer);
+
+			while (!this.ended && chars.position() == 0) {
+				CoderResult result = this.decoder.decode(this.bytes, chars, this.endOfInput);
+				if (result.isError()) {
+					// the characters decoded before the bytes are still read
+					this.ended = true;
+					this.malformed = true;
+				} else if (result.isUnderflow()) {
+					if (this.endOfInput) {
+						this.decoder.flush(chars);
+						this.ended = true;
+					} else {
+						this.readBytes();
+					}
+				}
 			}
+
+			this.position = 0;
+			this.limit = chars.position();
+			return this.limit > 0;
 		}
 
-		if (highestScoresList.size() > 1) {
-			int maxCount = 0;
-			for (String word : highestScoresList) {
-				if (this.wordsList.get(word).getCount() > maxCount) {
-					maxCount = this.wordsList.get(word).getCount();
-					highestScoreKey = word;
+		/**
+		 * A method to read more bytes of the file after the ones not decoded
+		 * yet
+		 */
+		private void readBytes() {
+
+			this.bytes.compact();
+			try {
+				if (this.channel.read(this.bytes) < 0) {
+					this.endOfInput = true;
 				}
+			} catch (IOException e) {
+				// nothing more can be read, but the bytes already read are
+				// still decoded
+				this.endOfInput = true;
+			}
+			this.bytes.flip();
+		}
+
+		/**
+		 * A method to close the file
+		 */
+		@Override
+		public void close() {
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				// nothing more is read from the file
 			}
-		} else {
-			highestScoreKey = highestScoresList.get(0);
 		}
-		return highestScoreKey;
 	}
-	//
-	// ArrayList<String> keys = this.getWordsOccuringTwice();
-	//
-	// Iterator<String> it = keys.iterator();
-	// String key = "";
-	//
-	// while (it.hasNext()) {
-	//
-	// key = it.next();
-	//
-	// if (this.checkIfSmallest(key, keys)) {
-	// return key;
-	// }
-	// }
-	// return "";
-	// }
 
 	/**
-	 * A method to return the word with the most negative or lowest score
+	 * A class to store the scores and counts of the words in an open
+	 * addressing table. The words are kept in one array and their score sums
+	 * and counts in arrays of primitives at the same slots, so a word takes
+	 * no object of its own and adding a score to it is a single probe of the
+	 * table.
 	 * 
-	 * @return the word that has the most negative score
+	 * @author Sanjeeb Sangraula
+	 *
 	 */
-	public String mostNegative() {
-
-		ArrayList<String> lowestScoresList = new ArrayList<String>();
+	class WordTable {
+
+		// The number of slots of a new table
+		private static final int INITIAL_CAPACITY = 1 << 10;
+
+		// An instance variable to hold the words, with null in the free slots
+		private String[] words;
+		// An instance variable to hold the sum of the scores of every word
+		private double[] scores;
+		// An instance variable to hold the number of times every word occurs
+		private int[] counts;
+		// An instance variable to hold the number of words in the table
+		private int size = 0;
+		// An instance variable to hold the shift that turns a hash into a slot
+		private int shift;
 
-		ArrayList<String> frequentWordsList = new ArrayList<String>();
-
-		double currentScore = 0.0;
-		double lowestScore = 1000.0;
-		String lowestScoreKey = "";
+		/**
+		 * A no argument constructor to create an empty WordTable
+		 */
+		public WordTable() {
+			this.allocate(INITIAL_CAPACITY);
+		}
 
-		boolean first = true;
+		/**
+		 * A method to make the arrays of the table empty with a new number of
+		 * slots
+		 * 
+		 * @param capacity
+		 *            the number of slots, a power of two
+		 */
+		private void allocate(int capacity) {
+			this.words = new String[capacity];
+			this.scores = new double[capacity];
+			this.counts = new int[capacity];
+			this.shift = Integer.numberOfLeadingZeros(capacity - 1);
+		}
 
-		for (String key : wordsList.keySet()) {
+		/**
+		 * A method to find the slot that holds a word, or the free slot where
+		 * it would be put
+		 * 
+		 * @param word
+		 *            the word to look for
+		 * @return the slot
+		 */
+		private int probe(String word) {
 
-			if (wordsList.get(key).occursMoreThanTwice()) {
+			int mask = this.words.length - 1;
+			// Fibonacci hashing spreads the bits of String.hashCode over the
+			// slots
+			int slot = (word.hashCode() * 0x9E3779B9) >>> this.shift;
 
-				frequentWordsList.add(key);
+			while (this.words[slot] != null && !this.words[slot].equals(word)) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
 
-				currentScore = wordsList.get(key).getTotalScore();
+		/**
+		 * A method to add a score to a word, putting the word in the table if
+		 * it is not there yet
+		 * 
+		 * @param word
+		 *            the word
+		 * @param score
+		 *            the score to be added
+		 * @return the slot of the word
+		 */
+		public int addScore(String word, double score) {
+			return this.addScores(word, score, 1);
+		}
 
-				if (first) {
-					lowestScore = currentScore;
-					lowestScoreKey = key;
-					first = false;
-					continue;
-				}
+		/**
+		 * A method to add the scores of all the words of another table to
+		 * this one
+		 * 
+		 * @param other
+		 *            the table whose scores are to be added
+		 */
+		public void addAll(WordTable other) {
 
-				if (currentScore < lowestScore) {
-					lowestScore = currentScore;
-					lowestScoreKey = key;
+			for (int slot = 0; slot < other.capacity(); slot++) {
+				if (other.words[slot] != null) {
+					this.addScores(other.words[slot], other.scores[slot], other.counts[slot]);
 				}
 			}
 		}
 
-		for (String word : frequentWordsList) {
-			if (this.wordsList.get(word).getTotalScore() == lowestScore) {
-				lowestScoresList.add(word);
+		/**
+		 * A method to add several scores to a word at once, putting the word
+		 * in the table if it is not there yet
+		 * 
+		 * @param word
+		 *            the word
+		 * @param score
+		 *            the sum of the scores to be added
+		 * @param count
+		 *            the number of scores added
+		 * @return the slot of the word
+		 */
+		private int addScores(String word, double score, int count) {
+
+			int slot = this.probe(word);
+
+			if (this.words[slot] == null) {
+				this.words[slot] = word;
+				this.size++;
 			}
+			this.scores[slot] += score;
+			this.counts[slot] += count;
+
+			// keep at most two thirds of the slots full, so the probes stay
+			// short
+			if (3 * this.size > 2 * this.words.length) {
+				this.grow();
+				slot = this.probe(word);
+			}
+			return slot;
 		}
 
-		if (lowestScoresList.size() > 1) {
-			int maxCount = 0;
-			for (String word : lowestScoresList) {
-				if (this.wordsList.get(word).getCount() > maxCount) {
-					maxCount = this.wordsList.get(word).getCount();
-					lowestScoreKey = word;
+		/**
+		 * A method to double the number of slots, putting every word back in
+		 * the new arrays
+		 */
+		private void grow() {
+
+			String[] oldWords = this.words;
+			double[] oldScores = this.scores;
+			int[] oldCounts = this.counts;
+
+			this.allocate(2 * oldWords.length);
+
+			for (int i = 0; i < oldWords.length; i++) {
+				if (oldWords[i] != null) {
+					int slot = this.probe(oldWords[i]);
+					this.words[slot] = oldWords[i];
+					this.scores[slot] = oldScores[i];
+					this.counts[slot] = oldCounts[i];
 				}
 			}
-		} else {
-			lowestScoreKey = lowestScoresList.get(0);
 		}
-		return lowestScoreKey;
+
+		/**
+		 * A method to find the slot of a word
+		 * 
+		 * @param word
+		 *            the word to look for
+		 * @return the slot of the word, or -1 if it is not in the table
+		 */
+		public int find(String word) {
+
+			int slot = this.probe(word);
+			return this.words[slot] == null ? -1 : slot;
+		}
+
+		/**
+		 * Method to get the number of slots, some of which may be free
+		 * 
+		 * @return the number of slots
+		 */
+		public int capacity() {
+			return this.words.length;
+		}
+
+		/**
+		 * Method to get the number of words in the table
+		 * 
+		 * @return the number of words
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Method to get the word at a slot
+		 * 
+		 * @param slot
+		 *            the slot
+		 * @return the word, or null if the slot is free
+		 */
+		public String getWord(int slot) {
+			return this.words[slot];
+		}
+
+		/**
+		 * Method to get the sum of the scores of the word at a slot
+		 * 
+		 * @param slot
+		 *            the slot of the word
+		 * @return the sum of all the scores added to the word
+		 */
+		public double getScoreSum(int slot) {
+			return this.scores[slot];
+		}
+
+		/**
+		 * Method to get the average score of the word at a slot
+		 * 
+		 * @param slot
+		 *            the slot of the word
+		 * @return the total score of the word divided by its count
+		 */
+		public double getTotalScore(int slot) {
+			return this.scores[slot] / this.counts[slot];
+		}
+
+		/**
+		 * Method to return the number of times the word at a slot has occured
+		 * 
+		 * @param slot
+		 *            the slot of the word
+		 * @return the word count in the file
+		 */
+		public int getCount(int slot) {
+			return this.counts[slot];
+		}
+
+		/**
+		 * Method to check if the word at a slot occurs at least twice
+		 * 
+		 * @param slot
+		 *            the slot of the word
+		 * @return true if the word occurs at least twice, false otherwise
+		 */
+		public boolean occursMoreThanTwice(int slot) {
+			return this.counts[slot] >= 2;
+		}
 	}
 
 	/**
-	 * A class to store attributes related to a String word
+	 * A class to keep the words occurring at least twice ordered by their
+	 * average scores. The words are kept in two sorted sets, one from the
+	 * highest score down and one from the lowest score up, both putting the
+	 * words occurring most often first among equal scores and then going in
+	 * alphabetical order. Finding the most positive or most negative word
+	 * takes logarithmic time, and moving a word when its score changes does
+	 * too.
 	 * 
-	 * @author Sanjeeb
+	 * @author Sanjeeb Sangraula
 	 *
 	 */
-	class Word {
+	class ScoreIndex {
+
+		// An instance variable to hold the words from the highest score down
+		private TreeSet<RankedWord> highest = new TreeSet<>((a, b) -> {
+			int order = Double.compare(b.score, a.score);
+			return order != 0 ? order : a.compareTies(b);
+		});
+		// An instance variable to hold the words from the lowest score up
+		private TreeSet<RankedWord> lowest = new TreeSet<>((a, b) -> {
+			int order = Double.compare(a.score, b.score);
+			return order != 0 ? order : a.compareTies(b);
+		});
 
-		private double score;
-		private int count;
+		/**
+		 * A method to put a word in the index
+		 * 
+		 * @param word
+		 *            the word
+		 * @param score
+		 *            the average score of the word
+		 * @param count
+		 *            the number of times the word occurs
+		 */
+		public void add(String word, double score, int count) {
+
+			RankedWord ranked = new RankedWord(word, score, count);
+			this.highest.add(ranked);
+			this.lowest.add(ranked);
+		}
 
 		/**
-		 * A no argument for the word
+		 * A method to take a word out of the index
+		 * 
+		 * @param ranked
+		 *            the word with the score and count it was put in with
 		 */
-		public Word() {
-			this.score = 0;
-			this.count = 0;
+		public void remove(RankedWord ranked) {
+			this.highest.remove(ranked);
+			this.lowest.remove(ranked);
 		}
 
 		/**
-		 * Method to add score to this word
+		 * A method to get the word with the highest or the lowest score
 		 * 
-		 * @param score
-		 *            the score to be added
+		 * @param highestFirst
+		 *            true for the highest score, false for the lowest
+		 * @return the word, or an empty string if the index is empty
 		 */
-		public void addScore(double score) {
-			this.count++;
-			this.score += score;
+		public String first(boolean highestFirst) {
+
+			TreeSet<RankedWord> words = highestFirst ? this.highest : this.lowest;
+			return words.isEmpty() ? "" : words.first().word;
 		}
 
 		/**
-		 * Method to get the total score from the word
+		 * A method to get the words with the highest or the lowest scores
 		 * 
-		 * @return the total score of the word
+		 * @param highestFirst
+		 *            true for the highest scores, false for the lowest
+		 * @param number
+		 *            the number of words to get
+		 * @return the words in order, at most number of them
 		 */
-		public double getTotalScore() {
-			return score / count;
+		public List<String> first(boolean highestFirst, int number) {
+
+			List<String> words = new ArrayList<>();
+			Iterator<RankedWord> it = (highestFirst ? this.highest : this.lowest).iterator();
+
+			while (words.size() < number && it.hasNext()) {
+				words.add(it.next().word);
+			}
+			return words;
+		}
+	}
+
+	/**
+	 * A class to hold a word with the score and count it is ordered by in a
+	 * ScoreIndex
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class RankedWord {
+
+		// An instance variable to hold the word
+		private final String word;
+		// An instance variable to hold the average score of the word
+		private final double score;
+		// An instance variable to hold the number of times the word occurs
+		private final int count;
+
+		/**
+		 * An argument constructor to create a new RankedWord
+		 * 
+		 * @param word
+		 *            the word
+		 * @param score
+		 *            the average score of the word
+		 * @param count
+		 *            the number of times the word occurs
+		 */
+		public RankedWord(String word, double score, int count) {
+			this.word = word;
+			this.score = score;
+			this.count = count;
 		}
 
 		/**
-		 * Method to return the number of times this word has occured in the
-		 * program
+		 * Method to get the word
 		 * 
-		 * @return count this word count in the file
+		 * @return the word
 		 */
-		public int getCount() {
-			return count;
+		public String getWord() {
+			return this.word;
 		}
 
 		/**
-		 * Method to check if this word occurs more than twice
+		 * Method to check if the word occurs at least twice, so it belongs in
+		 * a ScoreIndex
 		 * 
-		 * @return true if this word occurs more than twice, false otherwise
+		 * @return true if the word occurs at least twice, false otherwise
 		 */
 		public boolean occursMoreThanTwice() {
-			return count >= 2;
+			return this.count >= 2;
 		}
 
 		/**
-		 * Method to increase the count of this word
+		 * A method to order two words with the same score, the one occurring
+		 * most often first and then in alphabetical order
+		 * 
+		 * @param other
+		 *            the other word
+		 * @return a negative number if this word comes first, a positive
+		 *         number if the other word comes first, 0 if they are the same
 		 */
-		public void increaseCount() {
-			count++;
+		public int compareTies(RankedWord other) {
+
+			int order = Integer.compare(other.count, this.count);
+			return order != 0 ? order : this.word.compareTo(other.word);
 		}
 	}
 }
\ No newline at end of file
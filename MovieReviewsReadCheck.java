@@ -0,0 +1,108 @@
+package movieReviews;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A class to check that MovieReviews still trains on every complete line
+ * before bytes that cannot be decoded. Files are written with many lines of
+ * one review, fewer than fill the buffer of the reader once and more than
+ * fill it several times, then one other review just before a line holding
+ * a byte that is not valid in UTF-8 or US-ASCII, followed by more lines.
+ * The words of the lines before that line must be learned on one thread
+ * and on several, and nothing from the line holding the byte or after it.
+ * 
+ * Usage: java movieReviews.MovieReviewsReadCheck
+ * 
+ * The program prints one line for every way of training and exits with
+ * status 1 if any gave a wrong result.
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class MovieReviewsReadCheck {
+
+	// The numbers of lines of the same review written before the line that
+	// cannot be decoded
+	private static final int[] GOOD_LINES = { 100, 1000 };
+	// The threads used for each way of training, 1 for the constructor that
+	// reads on a single thread
+	private static final int[] THREADS = { 1, 2, 4 };
+
+	/**
+	 * The method that writes the files and checks every way of training on
+	 * them
+	 * 
+	 * @param args
+	 *            Not used
+	 * @throws IOException
+	 *             if a file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		boolean failed = false;
+		for (int lines : GOOD_LINES) {
+			failed |= !check(lines);
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A method to write a file with a number of lines before the line that
+	 * cannot be decoded and check every way of training on it
+	 * 
+	 * @param lines
+	 *            The number of lines of the same review before it
+	 * @return True if every way of training gave the right result
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static boolean check(int lines) throws IOException {
+
+		File file = File.createTempFile("moviereviews-check", ".txt");
+		file.deleteOnExit();
+
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			for (int i = 0; i < lines; i++) {
+				out.write("3 good movie\n".getBytes(StandardCharsets.US_ASCII));
+			}
+			out.write("4 great ending\n1 caf".getBytes(StandardCharsets.US_ASCII));
+			out.write(0xff);
+			out.write(" bad\n0 awful\n".getBytes(StandardCharsets.US_ASCII));
+		}
+
+		boolean correct = true;
+		for (int threads : THREADS) {
+			MovieReviews reviews = threads == 1 ? new MovieReviews(file.getPath(), Integer.MAX_VALUE)
+					: new MovieReviews(file.getPath(), Integer.MAX_VALUE, threads);
+			boolean learned = learnedGoodLines(reviews);
+			System.out.println(lines + " lines, " + threads + " threads: " + (learned ? "correct" : "wrong"));
+			correct &= learned;
+		}
+
+		file.delete();
+		return correct;
+	}
+
+	/**
+	 * A method to check what a MovieReviews learned from a file
+	 * 
+	 * @param reviews
+	 *            The MovieReviews trained on the file
+	 * @return True if it learned the lines before the line holding the byte
+	 *         that cannot be decoded and none of the others
+	 */
+	private static boolean learnedGoodLines(MovieReviews reviews) {
+
+		// the words not learned have the neutral score
+		return reviews.wordScore("good") == 3.0 && reviews.wordScore("movie") == 3.0
+				&& reviews.mostPositive().equals("good") && reviews.wordScore("great") == 4.0
+				&& reviews.wordScore("ending") == 4.0 && reviews.wordScore("caf") == 2.0
+				&& reviews.wordScore("bad") == 2.0 && reviews.wordScore("awful") == 2.0;
+	}
+}
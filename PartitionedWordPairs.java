@@ -0,0 +1,365 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class to answer the chainLength and reachableFrom queries of WordPairs
+ * with the graph split between several worker processes. Every word belongs
+ * to one partition chosen by its hash, and a WordPairsPartitionWorker JVM is
+ * started on this machine for every partition, holding only the words of its
+ * partition and the pairs that start at them. The workers are reached over
+ * loopback sockets.
+ * 
+ * A query is a breadth first search run one level at a time. Every worker
+ * expands its part of the level and sends back the words it leads to in one
+ * batch per partition, and every batch is passed on to the worker owning its
+ * words, which keeps the ones not reached yet as its part of the next level.
+ * The results are the same as those of WordPairs on the same file.
+ * 
+ * Usage: java PartitionedWordPairs filename partitions first last [maxLength]
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class PartitionedWordPairs implements AutoCloseable {
+
+	// An instance variable to hold the number of partitions
+	private int partitions;
+	// An instance variable to hold the worker processes
+	private List<Process> processes = new ArrayList<>();
+	// An instance variable to hold the connections to the workers
+	private List<Socket> sockets = new ArrayList<>();
+	// An instance variable to hold the streams the workers are read from
+	private List<DataInputStream> inputs = new ArrayList<>();
+	// An instance variable to hold the streams the workers are written to
+	private List<DataOutputStream> outputs = new ArrayList<>();
+
+	/**
+	 * An argument constructor to create a new PartitionedWordPairs, starting
+	 * one worker process for every partition and waiting until they have all
+	 * read the file
+	 * 
+	 * @param filename
+	 *            The name of the file of word pairs
+	 * @param partitions
+	 *            The number of partitions, at least 1
+	 * @throws IOException
+	 *             if a worker cannot be started or cannot read the file
+	 */
+	public PartitionedWordPairs(String filename, int partitions) throws IOException {
+
+		if (partitions < 1) {
+			throw new IllegalArgumentException("At least one partition is needed");
+		}
+		this.partitions = partitions;
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		try {
+			// the workers read the file at the same time
+			for (int i = 0; i < partitions; i++) {
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						"WordPairsPartitionWorker", filename, Integer.toString(i), Integer.toString(partitions));
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				this.processes.add(builder.start());
+			}
+			for (Process process : this.processes) {
+				this.connect(process);
+			}
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * The method that loads a file on several worker processes and prints the
+	 * length of the shortest chain between two words and the number of words
+	 * reachable from the first
+	 * 
+	 * @param args
+	 *            The name of the file, the number of partitions, the first
+	 *            and last words and optionally the maximum length of the
+	 *            chains counted by reachableFrom
+	 * @throws IOException
+	 *             if the workers cannot be started or reached
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 4) {
+			System.out.println("Usage: java PartitionedWordPairs filename partitions first last [maxLength]");
+			return;
+		}
+
+		int maxLength = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+		try (PartitionedWordPairs wordPairs = new PartitionedWordPairs(args[0], Integer.parseInt(args[1]))) {
+			System.out.println("chainLength " + wordPairs.chainLength(args[2], args[3]));
+			System.out.println("reachableFrom " + wordPairs.reachableFrom(args[2], maxLength));
+		}
+	}
+
+	/**
+	 * A method to read the port a worker prints once it has read the file,
+	 * and connect to it
+	 * 
+	 * @param process
+	 *            The worker process
+	 * @throws IOException
+	 *             if the worker stops before printing its port or cannot be
+	 *             reached
+	 */
+	private void connect(Process process) throws IOException {
+
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		String line = reader.readLine();
+		if (line == null || !line.startsWith("PORT ")) {
+			throw new IOException("A worker stopped before it was ready");
+		}
+
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring(5).trim()));
+		socket.setTcpNoDelay(true);
+		this.sockets.add(socket);
+		this.inputs.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+		this.outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+	}
+
+	/**
+	 * A method to return the number of word pairs in the shortest chain that
+	 * begins with first and ends with last. Return Integer.MAX_VALUE if none
+	 * exists.
+	 * 
+	 * @param first
+	 *            The word from which the shortest chain starts
+	 * @param last
+	 *            The word where the shortest chain is to end
+	 * @return a integer representing the number of word pairs that begin with
+	 *         first and ends with last
+	 * @throws IOException
+	 *             if a worker cannot be reached
+	 */
+	public int chainLength(String first, String last) throws IOException {
+
+		if (!this.contains(first) || !this.contains(last)) {
+			return Integer.MAX_VALUE;
+		}
+
+		// first is not marked as reached, so a chain from a word back to
+		// itself is found when first is reached again
+		this.start(first, false);
+		int owner = WordPairsPartitionWorker.partitionOf(last, this.partitions);
+
+		for (int level = 1;; level++) {
+			List<Set<String>> batches = this.expand();
+			if (batches.get(owner).contains(last)) {
+				return level;
+			}
+			if (this.visit(batches) == 0) {
+				return Integer.MAX_VALUE;
+			}
+		}
+	}
+
+	/**
+	 * A method to return the number of distinct words that are part of all
+	 * chains of maxLength that begin with word.
+	 * 
+	 * @param word
+	 *            The word or vertex from which the chains start.
+	 * @param maxLength
+	 *            The maximum length of the chains that begin with word, 0 for
+	 *            no maximum.
+	 * @return The total number of distinct words that are part of all chains of
+	 *         maxlength.
+	 * @throws IOException
+	 *             if a worker cannot be reached
+	 */
+	public int reachableFrom(String word, int maxLength) throws IOException {
+
+		if (maxLength < 0 || !this.contains(word)) {
+			return 0;
+		}
+
+		this.start(word, true);
+		int count = 1;
+
+		for (int level = 0; maxLength == 0 || level < maxLength; level++) {
+			int reached = this.visit(this.expand());
+			if (reached == 0) {
+				break;
+			}
+			count += reached;
+		}
+		return count;
+	}
+
+	/**
+	 * A method to return the number of distinct words that are part of all
+	 * chains that begin with word. Assume that a word is always reachable from
+	 * itself
+	 * 
+	 * @param word
+	 *            The word or vertex from which the chains start
+	 * @return The number of distinct words that are part of all chains that
+	 *         begin with word
+	 * @throws IOException
+	 *             if a worker cannot be reached
+	 */
+	public int reachableFrom(String word) throws IOException {
+
+		// a maximum length of 0 does not limit the length
+		return this.reachableFrom(word, 0);
+	}
+
+	/**
+	 * A method to check whether a word is in the graph
+	 * 
+	 * @param word
+	 *            The word
+	 * @return True if the word is part of a pair
+	 * @throws IOException
+	 *             if its worker cannot be reached
+	 */
+	private boolean contains(String word) throws IOException {
+
+		int owner = WordPairsPartitionWorker.partitionOf(word, this.partitions);
+		DataOutputStream out = this.outputs.get(owner);
+		out.writeByte(WordPairsPartitionWorker.CONTAINS);
+		WordPairsPartitionWorker.writeWord(out, word);
+		out.flush();
+		return this.inputs.get(owner).readBoolean();
+	}
+
+	/**
+	 * A method to make all workers forget the last search and start a new
+	 * one from a word
+	 * 
+	 * @param word
+	 *            The word the search starts from
+	 * @param mark
+	 *            True if the word counts as reached
+	 * @throws IOException
+	 *             if a worker cannot be reached
+	 */
+	private void start(String word, boolean mark) throws IOException {
+
+		for (DataOutputStream out : this.outputs) {
+			out.writeByte(WordPairsPartitionWorker.RESET);
+		}
+
+		DataOutputStream out = this.outputs.get(WordPairsPartitionWorker.partitionOf(word, this.partitions));
+		out.writeByte(WordPairsPartitionWorker.SEED);
+		out.writeBoolean(mark);
+		out.writeInt(1);
+		WordPairsPartitionWorker.writeWord(out, word);
+
+		for (DataOutputStream output : this.outputs) {
+			output.flush();
+		}
+	}
+
+	/**
+	 * A method to have every worker expand its part of the current level and
+	 * gather the words they lead to, in one batch for every partition
+	 * 
+	 * @return The batches, without a word repeated in a batch
+	 * @throws IOException
+	 *             if a worker cannot be reached
+	 */
+	private List<Set<String>> expand() throws IOException {
+
+		// every worker is asked before any answer is read, so they all
+		// expand at the same time
+		for (DataOutputStream out : this.outputs) {
+			out.writeByte(WordPairsPartitionWorker.EXPAND);
+			out.flush();
+		}
+
+		List<Set<String>> merged = new ArrayList<>(this.partitions);
+		for (int p = 0; p < this.partitions; p++) {
+			merged.add(new LinkedHashSet<>());
+		}
+		for (DataInputStream in : this.inputs) {
+			for (int p = 0; p < this.partitions; p++) {
+				merged.get(p).addAll(WordPairsPartitionWorker.readBatch(in));
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * A method to pass every batch to the worker owning its words, which
+	 * keeps the ones not reached yet as its part of the next level
+	 * 
+	 * @param batches
+	 *            The batches, one for every partition
+	 * @return The number of words reached for the first time
+	 * @throws IOException
+	 *             if a worker cannot be reached
+	 */
+	private int visit(List<Set<String>> batches) throws IOException {
+
+		for (int p = 0; p < this.partitions; p++) {
+			DataOutputStream out = this.outputs.get(p);
+			out.writeByte(WordPairsPartitionWorker.VISIT);
+			WordPairsPartitionWorker.writeBatch(out, batches.get(p), batches.get(p).size());
+			out.flush();
+		}
+
+		int reached = 0;
+		for (DataInputStream in : this.inputs) {
+			reached += in.readInt();
+		}
+		return reached;
+	}
+
+	/**
+	 * A method to stop all the workers and close the connections to them
+	 */
+	@Override
+	public void close() {
+
+		for (DataOutputStream out : this.outputs) {
+			try {
+				out.writeByte(WordPairsPartitionWorker.SHUTDOWN);
+				out.flush();
+			} catch (IOException e) {
+				// the worker has already stopped
+			}
+		}
+		for (Socket socket : this.sockets) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// nothing more can be done with the connection
+			}
+		}
+		for (Process process : this.processes) {
+			try {
+				if (!process.waitFor(10, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.outputs.clear();
+		this.inputs.clear();
+		this.sockets.clear();
+		this.processes.clear();
+	}
+}
@@ -1,15 +1,35 @@
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
 
 /**
  * A class to perform breadth-first search algorithm studied in class to perform
@@ -21,12 +41,79 @@ import java.util.TreeSet;
  */
 public class WordPairs {
 
+	// A handle to set the level of a word from several threads at once
+	private static final VarHandle LEVELS = MethodHandles.arrayElementVarHandle(int[].class);
+	// The longest array the Java virtual machines in use can make
+	private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
 	// An instance variable to hold the DiGraph
 	private DiGraph graph;
+	// An instance variable to hold the vertices of the DiGraph in the order
+	// they were added
+	private ArrayList<String> vertices;
+	// An instance variable to map every vertex to its position in vertices
+	private Map<String, Integer> vertexIds;
+	// An instance variable to hold the DistanceTables of the words whose
+	// results are kept up to date as pairs are added
+	private Map<String, DistanceTable> trackedWords = new LinkedHashMap<>();
+	// An instance variable to hold the frozen copy of the DiGraph that is
+	// used by the queries, null if the DiGraph has changed since it was made
+	private WordGraph snapshot;
 	// An instance variable to hold the WordChainFinder
 	private WordChainFinder wordChainFinder;
 	// An instance variable to hold the ReachableWordsFinder
 	private ReachableWordsFinder reachableWordsFinder;
+	// An instance variable to keep track of whether word chains are searched
+	// from both ends
+	private boolean bidirectionalSearch = false;
+	// An instance variable to keep track of whether reachable words are
+	// searched both top-down and bottom-up
+	private boolean directionOptimizing = false;
+	// An instance variable to keep track of whether the strongly connected
+	// components of the graph are indexed
+	private boolean componentIndexEnabled = false;
+	// An instance variable to hold the index of the strongly connected
+	// components, null if there is no index
+	private ComponentIndex componentIndex;
+	// An instance variable to hold the number of landmarks indexed, 0 if
+	// there is no landmark index
+	private int landmarkCount = 0;
+	// An instance variable to hold the index of the distances to and from
+	// the landmarks, null if there is no index
+	private LandmarkIndex landmarkIndex;
+	// An instance variable to keep track of whether the adjacent words are
+	// kept compressed
+	private boolean compressedAdjacency = false;
+	// An instance variable to keep track of whether the compressed lists may
+	// copy from the lists before them
+	private boolean referenceCompression = false;
+	// An instance variable to hold the results of recent queries
+	private QueryCache queryCache = new QueryCache(0);
+	// An instance variable to hold the loader that reads the pair files
+	private PairFileLoader loader;
+	// An instance variable to hold the name of the text file the pairs were
+	// read from
+	private String sourceFilename;
+	// An instance variable to keep track of whether the DiGraph holds all
+	// the pairs, false while the pairs are only in a WordGraph opened from a
+	// snapshot file
+	private boolean graphFilled = true;
+	// An instance variable to hold the threads that search large graphs,
+	// null if the searches run on a single thread
+	private ForkJoinPool searchPool;
+	// An instance variable to hold the last QueryView published for other
+	// threads, null until the first one is published
+	private volatile QueryView queryView;
+	// An instance variable to count the QueryViews published so far
+	private long publishedViews = 0;
+	// An instance variable to keep track of whether the queries are measured
+	private boolean instrumented = false;
+	// An instance variable to hold the measurements of the last query, null
+	// if no query has been measured
+	private QueryStats lastQueryStats;
+	// An instance variable to map the name of every query to the histogram
+	// of its wall times
+	private Map<String, LatencyHistogram> latencyHistograms = new LinkedHashMap<>();
 
 	/**
 	 * A constructor that reads in the data from a text file which contains a
@@ -37,9 +124,521 @@ public class WordPairs {
 	 */
 	public WordPairs(String filename) {
 		graph = new DiGraph();
-		wordChainFinder = new WordChainFinder(this.graph);
-		reachableWordsFinder = new ReachableWordsFinder(this.graph);
+		vertices = new ArrayList<>();
+		vertexIds = new HashMap<>();
+		loader = new PairFileLoader();
+		sourceFilename = filename;
 		this.readFile(filename);
+		this.freeze();
+	}
+
+	/**
+	 * A constructor that reads in the data from a text file using several
+	 * threads. The graph built is the same as the one built by
+	 * WordPairs(filename).
+	 * 
+	 * @param filename
+	 *            the name of the file from which input is to be read
+	 * @param threads
+	 *            the number of threads used to split the lines of the file
+	 */
+	public WordPairs(String filename, int threads) {
+		graph = new DiGraph();
+		vertices = new ArrayList<>();
+		vertexIds = new HashMap<>();
+		loader = new PairFileLoader();
+		sourceFilename = filename;
+		this.readFileParallel(filename, threads);
+		this.freeze();
+	}
+
+	/**
+	 * A constructor that opens the graph from a snapshot file made from the
+	 * text file, which is much faster than reading the text file. If the
+	 * snapshot file does not exist, is damaged or was made from an older
+	 * version of the text file, the text file is read and a new snapshot
+	 * file is written.
+	 * 
+	 * @param filename
+	 *            the name of the file from which input is to be read
+	 * @param snapshotFilename
+	 *            the name of the snapshot file to open or write
+	 */
+	public WordPairs(String filename, String snapshotFilename) {
+		this(filename, snapshotFilename, false);
+	}
+
+	/**
+	 * A constructor that opens the graph from a snapshot file made from the
+	 * text file, like WordPairs(filename, snapshotFilename). With offHeap the
+	 * snapshot file stays memory mapped and the queries read the words and
+	 * pairs straight from it, so the words, the pairs and the table that
+	 * finds the number of a word are all kept outside the Java heap, and the
+	 * heap only holds the arrays of the queries running. If the text file
+	 * has to be read, the graph is built on the heap once to write the
+	 * snapshot file and then dropped.
+	 * 
+	 * @param filename
+	 *            the name of the file from which input is to be read
+	 * @param snapshotFilename
+	 *            the name of the snapshot file to open or write
+	 * @param offHeap
+	 *            true to keep the graph in the mapped snapshot file, false to
+	 *            copy it onto the heap
+	 */
+	public WordPairs(String filename, String snapshotFilename, boolean offHeap) {
+		graph = new DiGraph();
+		vertices = new ArrayList<>();
+		vertexIds = new HashMap<>();
+		loader = new PairFileLoader();
+		sourceFilename = filename;
+
+		SnapshotFile snapshotFile = new SnapshotFile(snapshotFilename);
+		WordGraph saved = null;
+		try {
+			saved = offHeap ? snapshotFile.mapIfCurrent(filename) : snapshotFile.readIfCurrent(filename);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		if (saved == null) {
+			this.readFile(filename);
+			this.freeze();
+			try {
+				snapshotFile.write(this.snapshot, filename);
+				if (offHeap) {
+					saved = snapshotFile.mapIfCurrent(filename);
+					// the graph on the heap is only dropped once the mapped
+					// one is there to replace it, since the text file may
+					// have changed after the snapshot file was written
+					if (saved != null) {
+						graph = new DiGraph();
+						vertices = new ArrayList<>();
+						vertexIds = new HashMap<>();
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		if (saved != null) {
+			graphFilled = false;
+			this.useSnapshot(saved);
+		}
+	}
+
+	/**
+	 * A method to save the current graph to a snapshot file, which can be
+	 * opened later with WordPairs(filename, snapshotFilename)
+	 * 
+	 * @param snapshotFilename
+	 *            the name of the snapshot file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void writeSnapshot(String snapshotFilename) throws IOException {
+
+		new SnapshotFile(snapshotFilename).write(this.getSnapshot(), this.sourceFilename);
+	}
+
+	/**
+	 * A method to build a new frozen WordGraph from the DiGraph and to point
+	 * the WordChainFinder and the ReachableWordsFinder to it
+	 */
+	private void freeze() {
+
+		this.useSnapshot(this.compress(new WordGraph(this.graph, this.vertices)));
+	}
+
+	/**
+	 * A method to compress a WordGraph if the adjacent words are to be kept
+	 * compressed
+	 * 
+	 * @param snapshot
+	 *            the WordGraph holding the current words and pairs
+	 * @return a CompressedWordGraph of the words and pairs, or snapshot if
+	 *         they are not to be compressed
+	 */
+	private WordGraph compress(WordGraph snapshot) {
+
+		if (!this.compressedAdjacency) {
+			return snapshot;
+		}
+		return new CompressedWordGraph(snapshot, this.referenceCompression);
+	}
+
+	/**
+	 * A method to make a WordGraph the one used by the queries and to point
+	 * the WordChainFinder and the ReachableWordsFinder to it
+	 * 
+	 * @param snapshot
+	 *            the WordGraph holding the current words and pairs
+	 */
+	private void useSnapshot(WordGraph snapshot) {
+
+		this.snapshot = snapshot;
+		if (this.bidirectionalSearch || this.directionOptimizing) {
+			this.snapshot.buildReverseIndex();
+		}
+		this.componentIndex = this.componentIndexEnabled ? new ComponentIndex(this.snapshot) : null;
+		this.landmarkIndex = this.landmarkCount > 0 ? new LandmarkIndex(this.snapshot, this.landmarkCount) : null;
+		this.wordChainFinder = new WordChainFinder(this.snapshot);
+		this.wordChainFinder.setBidirectional(this.bidirectionalSearch);
+		this.wordChainFinder.setComponentIndex(this.componentIndex);
+		this.wordChainFinder.setLandmarkIndex(this.landmarkIndex);
+		this.reachableWordsFinder = new ReachableWordsFinder(this.snapshot);
+		this.reachableWordsFinder.setPool(this.searchPool);
+		this.reachableWordsFinder.setDirectionOptimizing(this.directionOptimizing);
+		this.reachableWordsFinder.setComponentIndex(this.componentIndex);
+	}
+
+	/**
+	 * A method to build an index of the strongly connected components of the
+	 * graph. With the index, reachableFrom(word) is answered from the
+	 * component of the word instead of searching the graph, and cycle(word)
+	 * returns [] at once for a word that is alone in its component and has
+	 * no pair with itself. The index is rebuilt whenever the graph changes.
+	 */
+	public void buildComponentIndex() {
+
+		this.componentIndexEnabled = true;
+		this.useSnapshot(this.getSnapshot());
+	}
+
+	/**
+	 * A method to get how long the index of the strongly connected components
+	 * took to build
+	 * 
+	 * @return the build time in milliseconds, 0 if there is no index
+	 */
+	public long getComponentIndexBuildTime() {
+
+		this.getSnapshot();
+		return this.componentIndex == null ? 0 : this.componentIndex.getBuildTime();
+	}
+
+	/**
+	 * A method to get roughly how much memory the index of the strongly
+	 * connected components uses
+	 * 
+	 * @return the size of the arrays of the index in bytes, 0 if there is no
+	 *         index
+	 */
+	public long getComponentIndexMemory() {
+
+		this.getSnapshot();
+		return this.componentIndex == null ? 0 : this.componentIndex.getMemory();
+	}
+
+	/**
+	 * A method to get the number of strongly connected components
+	 * 
+	 * @return the number of components, 0 if there is no index
+	 */
+	public int getComponentCount() {
+
+		this.getSnapshot();
+		return this.componentIndex == null ? 0 : this.componentIndex.size();
+	}
+
+	/**
+	 * A method to build an index of the distances to and from a few landmark
+	 * words. For any two words the distances to the landmarks give a lower
+	 * and an upper bound on the length of the shortest chain between them,
+	 * which can prove at once that there is no chain, and wordChain,
+	 * chainLength and chainLengths then search towards the last word using
+	 * the lower bounds. The chains found are still the shortest ones, but
+	 * when there are several of the same length another one may be
+	 * returned. The index is rebuilt whenever the graph changes.
+	 * 
+	 * @param landmarks
+	 *            the number of landmark words, 0 to remove the index
+	 * @throws IllegalArgumentException
+	 *             if the distances of that many landmarks to every word do not
+	 *             fit in one array
+	 */
+	public void buildLandmarkIndex(int landmarks) {
+
+		int words = this.getSnapshot().size();
+		if (landmarks > getMaxLandmarks(words)) {
+			throw new IllegalArgumentException("At most " + getMaxLandmarks(words)
+					+ " landmarks fit in the index of a graph of " + words + " words");
+		}
+		this.landmarkCount = Math.max(landmarks, 0);
+		// the saved chains may not be the ones the new search would find
+		this.queryCache.clear();
+		this.useSnapshot(this.getSnapshot());
+	}
+
+	/**
+	 * A method to get how long the landmark index took to build
+	 * 
+	 * @return the build time in milliseconds, 0 if there is no index
+	 */
+	public long getLandmarkIndexBuildTime() {
+
+		this.getSnapshot();
+		return this.landmarkIndex == null ? 0 : this.landmarkIndex.getBuildTime();
+	}
+
+	/**
+	 * A method to get how much memory the distances of the landmark index use
+	 * 
+	 * @return the size of the arrays of the index in bytes, 0 if there is no
+	 *         index
+	 */
+	public long getLandmarkIndexMemory() {
+
+		this.getSnapshot();
+		return this.landmarkIndex == null ? 0 : this.landmarkIndex.getMemory();
+	}
+
+	/**
+	 * A method to get a lower bound on chainLength(first, last) from the
+	 * landmark index, without searching the graph
+	 * 
+	 * @param first
+	 *            the word from which the chain starts
+	 * @param last
+	 *            the word where the chain ends
+	 * @return a number no larger than chainLength(first, last),
+	 *         Integer.MAX_VALUE if the index proves there is no chain, 0 if
+	 *         there is no index or first and last are the same word
+	 */
+	public int chainLengthLowerBound(String first, String last) {
+
+		WordGraph graph = this.getSnapshot();
+		int source = graph.getId(first);
+		int target = graph.getId(last);
+		if (source < 0 || target < 0) {
+			return Integer.MAX_VALUE;
+		}
+		if (this.landmarkIndex == null || source == target) {
+			return 0;
+		}
+		return this.landmarkIndex.lowerBound(source, target);
+	}
+
+	/**
+	 * A method to get an upper bound on chainLength(first, last) from the
+	 * landmark index, without searching the graph
+	 * 
+	 * @param first
+	 *            the word from which the chain starts
+	 * @param last
+	 *            the word where the chain ends
+	 * @return a number no smaller than chainLength(first, last),
+	 *         Integer.MAX_VALUE if no landmark lies on a chain from first to
+	 *         last or there is no index
+	 */
+	public int chainLengthUpperBound(String first, String last) {
+
+		WordGraph graph = this.getSnapshot();
+		int source = graph.getId(first);
+		int target = graph.getId(last);
+		if (source < 0 || target < 0 || this.landmarkIndex == null || source == target) {
+			return Integer.MAX_VALUE;
+		}
+		return this.landmarkIndex.upperBound(source, target);
+	}
+
+	/**
+	 * A method to choose whether the adjacent words of every word are kept
+	 * compressed. The compressed lists are sorted and store the gaps between
+	 * the numbers of the words in one byte for most gaps, which takes a few
+	 * times less memory than an int for every pair, and are decoded as the
+	 * searches expand the words. The chains found are still the shortest
+	 * ones, but when there are several of the same length another one may
+	 * be returned.
+	 * 
+	 * @param compressed
+	 *            true to keep the adjacent words compressed, false to keep
+	 *            them in an array of ints
+	 * @param references
+	 *            true to let a compressed list copy the words it shares with
+	 *            one of the few lists before it, which saves more memory on
+	 *            graphs where nearby words have similar pairs. The gaps
+	 *            alone are kept when that takes fewer bytes.
+	 */
+	public void setCompression(boolean compressed, boolean references) {
+
+		this.compressedAdjacency = compressed;
+		this.referenceCompression = references;
+		// the saved chains may not be the ones the new search would find
+		this.queryCache.clear();
+		if (this.graphFilled) {
+			this.freeze();
+		} else {
+			this.useSnapshot(this.compress(this.getSnapshot().uncompressed()));
+		}
+	}
+
+	/**
+	 * A method to get how many bits the adjacent words take for every pair
+	 * in the graph the queries use, not counting the position of the first
+	 * pair of every word, which is kept either way
+	 * 
+	 * @return the number of bits for every pair, 0 if there are no pairs
+	 */
+	public double getBitsPerEdge() {
+
+		WordGraph graph = this.getSnapshot();
+		return graph.edgeCount() == 0 ? 0 : 8.0 * graph.getAdjacencyBytes() / graph.edgeCount();
+	}
+
+	/**
+	 * A method to choose whether reachableFrom and reachableWords may search a
+	 * level bottom-up. In a bottom-up level every word not reached yet looks
+	 * for a word of the current level among the words that lead to it, which
+	 * is much cheaper than expanding the level when the level holds a large
+	 * part of the graph. The results are the same either way.
+	 * 
+	 * @param directionOptimizing
+	 *            true to switch between top-down and bottom-up levels by the
+	 *            size of the level, false to always search top-down
+	 */
+	public void setDirectionOptimizing(boolean directionOptimizing) {
+
+		this.directionOptimizing = directionOptimizing;
+		if (this.snapshot != null) {
+			if (directionOptimizing) {
+				this.snapshot.buildReverseIndex();
+			}
+			this.reachableWordsFinder.setDirectionOptimizing(directionOptimizing);
+		}
+	}
+
+	/**
+	 * A method to set how many threads reachableFrom and reachableWords use.
+	 * With more than one thread every level of the search is shared between
+	 * the threads once it has enough words in it. The results are the same
+	 * for any number of threads.
+	 * 
+	 * @param threads
+	 *            the number of threads to search with, 1 to search on the
+	 *            calling thread only
+	 */
+	public void setSearchThreads(int threads) {
+
+		if (this.searchPool != null) {
+			this.searchPool.shutdown();
+		}
+		this.searchPool = threads > 1 ? new ForkJoinPool(threads) : null;
+		if (this.reachableWordsFinder != null) {
+			this.reachableWordsFinder.setPool(this.searchPool);
+		}
+	}
+
+	/**
+	 * A method to choose whether wordChain, chainLength and cycle search from
+	 * both ends of the chain at once. A bidirectional search returns a chain
+	 * of the same length, but when there are several shortest chains it may
+	 * return a different one.
+	 * 
+	 * @param bidirectional
+	 *            true to search forward from the first word and backward from
+	 *            the last word until the two searches meet, false to search
+	 *            forward only
+	 */
+	public void setBidirectionalSearch(boolean bidirectional) {
+
+		this.bidirectionalSearch = bidirectional;
+		// the saved chains may not be the ones the new search would find
+		this.queryCache.clear();
+		if (this.snapshot != null) {
+			if (bidirectional) {
+				this.snapshot.buildReverseIndex();
+			}
+			this.wordChainFinder.setBidirectional(bidirectional);
+		}
+	}
+
+	/**
+	 * A method to set how many query results are saved. When the same query
+	 * is made again its saved result is returned without searching the
+	 * graph. The least recently used result is dropped when there is no room
+	 * left, and all the results are dropped when a new word or word pair is
+	 * added. No results are saved until this method is called.
+	 * 
+	 * @param capacity
+	 *            the maximum number of results to save, 0 to save none
+	 * @throws IllegalArgumentException
+	 *             if capacity is negative
+	 */
+	public void setQueryCacheCapacity(int capacity) {
+
+		this.queryCache.setCapacity(capacity);
+	}
+
+	/**
+	 * A method to get the number of queries answered from saved results
+	 * 
+	 * @return the number of cache hits
+	 */
+	public long getCacheHits() {
+
+		return this.queryCache.getHits();
+	}
+
+	/**
+	 * A method to get the number of queries that had to search the graph
+	 * while results were being saved
+	 * 
+	 * @return the number of cache misses
+	 */
+	public long getCacheMisses() {
+
+		return this.queryCache.getMisses();
+	}
+
+	/**
+	 * A method to get the number of saved results dropped to make room for
+	 * newer ones
+	 * 
+	 * @return the number of cache evictions
+	 */
+	public long getCacheEvictions() {
+
+		return this.queryCache.getEvictions();
+	}
+
+	/**
+	 * A method to get the frozen WordGraph used by the queries. The WordGraph
+	 * is rebuilt first if new lines have been added to the DiGraph since it
+	 * was last built.
+	 * 
+	 * @return the frozen WordGraph holding the current words and pairs
+	 */
+	private WordGraph getSnapshot() {
+
+		if (this.snapshot == null) {
+			this.freeze();
+		}
+		return this.snapshot;
+	}
+
+	/**
+	 * A method to get the WordChainFinder that works on the current WordGraph
+	 * 
+	 * @return the WordChainFinder for the current words and pairs
+	 */
+	private WordChainFinder getWordChainFinder() {
+
+		this.getSnapshot();
+		return this.wordChainFinder;
+	}
+
+	/**
+	 * A method to get the ReachableWordsFinder that works on the current
+	 * WordGraph
+	 * 
+	 * @return the ReachableWordsFinder for the current words and pairs
+	 */
+	private ReachableWordsFinder getReachableWordsFinder() {
+
+		this.getSnapshot();
+		return this.reachableWordsFinder;
 	}
 
 	/**
@@ -50,25 +649,58 @@ public class WordPairs {
 	 */
 	public void readFile(String filename) {
 
-		File file = new File(filename);
+		try {
+
+			this.loader.load(filename);
 
-		Scanner sc = null;
+		} catch (IOException e) {
 
-		try {
+			e.printStackTrace();
+		}
+	}
 
-			sc = new Scanner(file);
+	/**
+	 * A method to read the input words and their pairs from a file, splitting
+	 * the lines of the file on several threads. The pairs are added to the
+	 * graph in the order of the file.
+	 * 
+	 * @param filename
+	 *            the name of the file from which the input is to be read
+	 * @param threads
+	 *            the number of threads used to split the lines of the file
+	 */
+	public void readFileParallel(String filename, int threads) {
 
-			while (sc.hasNextLine()) {
+		try {
 
-				this.handleLineFromFile(sc.nextLine());
-			}
+			this.loader.loadParallel(filename, threads);
 
-		} catch (FileNotFoundException e) {
+		} catch (IOException e) {
 
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * A method to get the number of lines read by the last call to readFile
+	 * 
+	 * @return the number of lines read from the file
+	 */
+	public long getLinesLoaded() {
+
+		return this.loader.getLines();
+	}
+
+	/**
+	 * A method to get how fast the last call to readFile read the file
+	 * 
+	 * @return the number of lines read per second
+	 */
+	public double getLinesPerSecond() {
+
+		return this.loader.getLinesPerSecond();
+	}
+
 	/**
 	 * A method to handle the input from the input text file. It takes a line
 	 * from the text file and adds that edge to the graph.
@@ -79,123 +711,4797 @@ public class WordPairs {
 	 */
 	public void handleLineFromFile(String line) {
 
-		Scanner sc = new Scanner(line);
+		String first = null, second = null;
+
+		int start = this.skipWhitespace(line, 0);
+		int end = this.skipWord(line, start);
+
+		if (start < end) {
+			first = line.substring(start, end);
+
+			start = this.skipWhitespace(line, end);
+			end = this.skipWord(line, start);
+
+			if (start < end) {
+				second = line.substring(start, end);
+			}
+		}
+
+		this.addPair(first, second);
+	}
+
+	/**
+	 * A method to find the first character that is not whitespace
+	 * 
+	 * @param line
+	 *            the line to look through
+	 * @param from
+	 *            the position to start looking from
+	 * @return the position of the first character at or after from that is
+	 *         not whitespace, or the length of the line
+	 */
+	private int skipWhitespace(String line, int from) {
+
+		while (from < line.length() && Character.isWhitespace(line.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * A method to find the end of the word that starts at a position
+	 * 
+	 * @param line
+	 *            the line to look through
+	 * @param from
+	 *            the position where the word starts
+	 * @return the position of the first whitespace character at or after
+	 *         from, or the length of the line
+	 */
+	private int skipWord(String line, int from) {
+
+		while (from < line.length() && !Character.isWhitespace(line.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * A method to add a pair of words to the graph. The words are added as
+	 * vertices first if they are not in the graph yet.
+	 * 
+	 * @param first
+	 *            the word the edge starts from
+	 * @param second
+	 *            the word the edge goes to
+	 */
+	private void addPair(String first, String second) {
+
+		if (!this.graphFilled) {
+			this.fillGraph();
+		}
+
+		boolean changed = false;
+
+		if (!this.graph.validVertex(first)) {
+			this.graph.addVertex(first);
+			this.addVertex(first);
+			changed = true;
+		}
+
+		if (!this.graph.validVertex(second)) {
+			this.graph.addVertex(second);
+			this.addVertex(second);
+			changed = true;
+		}
+
+		boolean newEdge = !this.graph.getAdjacent(first).contains(second);
+		this.graph.addEdge(first, second);
+
+		if (newEdge) {
+			changed = true;
+			for (DistanceTable table : this.trackedWords.values()) {
+				table.addEdge(this.vertexIds.get(first), this.vertexIds.get(second));
+			}
+		}
+
+		// a repeated pair does not change the graph, so the frozen graph and
+		// the saved query results are still correct
+		if (changed) {
+			this.snapshot = null;
+			this.queryCache.clear();
+		}
+	}
+
+	/**
+	 * A method to copy the words and pairs of a WordGraph opened from a
+	 * snapshot file into the DiGraph, so that new pairs can be added to it.
+	 * A graph kept off the heap is then copied onto the heap.
+	 */
+	private void fillGraph() {
+
+		WordGraph saved = this.snapshot;
+		int[] adjacent = new int[saved.getBufferSize()];
+		for (int i = 0; i < saved.size(); i++) {
+			this.graph.addVertex(saved.getWord(i));
+			this.vertices.add(saved.getWord(i));
+			this.vertexIds.put(saved.getWord(i), i);
+		}
+		for (int i = 0; i < saved.size(); i++) {
+			int start = saved.loadAdjacent(i, adjacent);
+			int stop = start + saved.endEdge(i) - saved.firstEdge(i);
+			int[] targets = saved.getTargets(adjacent);
+			for (int e = start; e < stop; e++) {
+				this.graph.addEdge(saved.getWord(i), saved.getWord(targets[e]));
+			}
+		}
+		this.graphFilled = true;
+	}
+
+	/**
+	 * A method to give a new vertex the next number and make room for it in
+	 * the tables of the tracked words
+	 * 
+	 * @param word
+	 *            the new vertex
+	 */
+	private void addVertex(String word) {
+
+		int id = this.vertices.size();
+		this.vertices.add(word);
+		this.vertexIds.put(word, id);
+		for (DistanceTable table : this.trackedWords.values()) {
+			table.addWord(id);
+		}
+	}
+
+	/**
+	 * A method to get the numbers of the vertices adjacent to a vertex in the
+	 * DiGraph, which always holds the latest pairs
+	 * 
+	 * @param id
+	 *            the number of the vertex
+	 * @return the numbers of the adjacent vertices
+	 */
+	private int[] getAdjacentIds(int id) {
+
+		Set<String> adjacent = this.graph.getAdjacent(this.vertices.get(id));
+		int[] ids = new int[adjacent.size()];
+		int i = 0;
+		for (String word : adjacent) {
+			ids[i++] = this.vertexIds.get(word);
+		}
+		return ids;
+	}
+
+	/**
+	 * A method to keep the results of the queries that start from a word up
+	 * to date as pairs are added. chainLength, chainLengths and reachableFrom
+	 * from the word are then answered from a table of levels that is updated
+	 * on every new pair, searching only from the second word of the pair,
+	 * instead of searching the whole graph again.
+	 * 
+	 * @param word
+	 *            the word whose queries are to be tracked
+	 * @return true if the word is tracked, false if it is not in the graph
+	 */
+	public boolean trackWord(String word) {
+
+		if (this.getVertexId(word) < 0) {
+			return false;
+		}
+		if (!this.trackedWords.containsKey(word)) {
+			this.trackedWords.put(word, new DistanceTable(this.getSnapshot(), word));
+		}
+		return true;
+	}
+
+	/**
+	 * A method to stop keeping the results of the queries from a word up to
+	 * date
+	 * 
+	 * @param word
+	 *            the word that is no longer to be tracked
+	 */
+	public void untrackWord(String word) {
+
+		this.trackedWords.remove(word);
+	}
+
+	/**
+	 * A method to choose whether the queries are measured. While they are,
+	 * every query counts the words it expands, the edges of those words, the
+	 * largest number of words waiting to be expanded and the entries of the
+	 * search arrays it allocates, and its wall time is added to the latency
+	 * histogram of its kind. While they are not, the searches only check
+	 * once per word that there is nothing to count.
+	 * 
+	 * @param instrumented
+	 *            true to measure every query, false to stop measuring
+	 */
+	public void setInstrumentation(boolean instrumented) {
+
+		this.instrumented = instrumented;
+	}
+
+	/**
+	 * A method to get the measurements of the last query made while the
+	 * queries were measured
+	 * 
+	 * @return the QueryStats of the last measured query, null if there is
+	 *         none
+	 */
+	public QueryStats getLastQueryStats() {
+
+		return this.lastQueryStats;
+	}
+
+	/**
+	 * A method to get the histogram of the wall times of one kind of query
+	 * 
+	 * @param query
+	 *            the name of the query method, such as "wordChain" or
+	 *            "reachableFrom"
+	 * @return the LatencyHistogram of the query, null if no such query has
+	 *         been measured
+	 */
+	public LatencyHistogram getLatencyHistogram(String query) {
+
+		return this.latencyHistograms.get(query);
+	}
+
+	/**
+	 * A method to get the histograms of the wall times of all the kinds of
+	 * queries measured so far
+	 * 
+	 * @return a map from the name of every query method to its
+	 *         LatencyHistogram, in the order they were first measured
+	 */
+	public Map<String, LatencyHistogram> getLatencyHistograms() {
+
+		return Collections.unmodifiableMap(this.latencyHistograms);
+	}
+
+	/**
+	 * A method to forget all the measured wall times
+	 */
+	public void resetLatencyHistograms() {
+
+		this.latencyHistograms.clear();
+	}
+
+	/**
+	 * A method to start measuring a query, if the queries are measured
+	 * 
+	 * @param query
+	 *            the name of the query method
+	 * @return the QueryStats to fill in, null if the queries are not
+	 *         measured
+	 */
+	private QueryStats beginQuery(String query) {
+
+		if (!this.instrumented) {
+			return null;
+		}
+		QueryStats stats = new QueryStats(query);
+		this.getWordChainFinder().setStats(stats);
+		this.getReachableWordsFinder().setStats(stats);
+		return stats;
+	}
+
+	/**
+	 * A method to finish measuring a query and add its wall time to the
+	 * histogram of its kind
+	 * 
+	 * @param stats
+	 *            the QueryStats returned by beginQuery, null if the query was
+	 *            not measured
+	 */
+	private void endQuery(QueryStats stats) {
+
+		if (stats == null) {
+			return;
+		}
+		stats.finish();
+		this.wordChainFinder.setStats(null);
+		this.reachableWordsFinder.setStats(null);
+
+		LatencyHistogram histogram = this.latencyHistograms.get(stats.getQuery());
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			this.latencyHistograms.put(stats.getQuery(), histogram);
+		}
+		histogram.record(stats.getWallTime());
+		this.lastQueryStats = stats;
+	}
+
+	/**
+	 * A method to get the latest QueryView of the graph. A QueryView can be
+	 * shared between any number of threads, unlike WordPairs itself, and it
+	 * keeps answering on the same words and pairs even while new lines are
+	 * being added through publishLines.
+	 * 
+	 * @return the last QueryView published, published first if there is
+	 *         none yet
+	 */
+	public QueryView getQueryView() {
+
+		QueryView view = this.queryView;
+		if (view == null) {
+			view = this.publish();
+		}
+		return view;
+	}
+
+	/**
+	 * A method to publish a new QueryView holding all the lines added so far.
+	 * The threads that call getQueryView afterwards get the new view, and
+	 * the threads still using an older view are not affected.
+	 * 
+	 * @return the new QueryView
+	 */
+	public synchronized QueryView publish() {
+
+		QueryView view = new QueryView(this.getSnapshot(), ++this.publishedViews);
+		this.queryView = view;
+		return view;
+	}
+
+	/**
+	 * A method to add lines to the graph and publish a new QueryView holding
+	 * them. This is the only way to add lines while other threads are
+	 * querying QueryViews of this WordPairs.
+	 * 
+	 * @param lines
+	 *            the lines to add, each with two words separated by spaces
+	 * @return the new QueryView
+	 */
+	public synchronized QueryView publishLines(Collection<String> lines) {
+
+		for (String line : lines) {
+			this.handleLineFromFile(line);
+		}
+		return this.publish();
+	}
+
+	/**
+	 * A method to return the shortest sequence of word pairs that begins with
+	 * first and ends with last, using the format below [first word1, word1
+	 * word2, word2 ... , wordn last]
+	 * 
+	 * @param first
+	 *            the word or the vertex from which the chain begins
+	 * @param last
+	 *            the word or vertex where the chain ends
+	 * @return a string containing the shortest sequence of word pairs that
+	 *         begins with first and ends with last
+	 */
+	public String wordChain(String first, String last) {
+
+		QueryStats stats = this.beginQuery("wordChain");
+		try {
+			return this.findWordChain(first, last);
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to get the shortest chain from first to last, from the saved
+	 * results if it was asked for before
+	 * 
+	 * @param first
+	 *            the word or the vertex from which the chain begins
+	 * @param last
+	 *            the word or vertex where the chain ends
+	 * @return a string containing the shortest sequence of word pairs that
+	 *         begins with first and ends with last
+	 */
+	private String findWordChain(String first, String last) {
+
+		List<Object> key = Arrays.asList("wordChain", first, last);
+		String chain = (String) this.queryCache.get(key);
+		if (chain == null) {
+			chain = this.getWordChainFinder().wordChain(first, last);
+			this.queryCache.put(key, chain);
+		}
+		return chain;
+	}
+
+	/**
+	 * A method to return the number of word pairs in the shortest chain that
+	 * begins with first and ends with last. Return Integer.MAX_VALUE if none
+	 * exists.
+	 * 
+	 * @param first
+	 *            The word from which the shortest chain starts
+	 * @param last
+	 *            The word where the shortest chain is to end
+	 * @return a integer representing the number of word pairs that begin with
+	 *         first and ends with last
+	 */
+	public int chainLength(String first, String last) {
+
+		QueryStats stats = this.beginQuery("chainLength");
+		try {
+			DistanceTable table = this.trackedWords.get(first);
+			if (table != null) {
+				return table.chainLength(this.getVertexId(last));
+			}
+
+			List<Object> key = Arrays.asList("chainLength", first, last);
+			Integer length = (Integer) this.queryCache.get(key);
+			if (length == null) {
+				length = this.getWordChainFinder().chainLength(first, last);
+				this.queryCache.put(key, length);
+			}
+			return length;
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to return the number of distinct words that are part of all
+	 * chains of maxLength that begin with word.
+	 * 
+	 * @param word
+	 *            The word or vertex from which the chains start.
+	 * @param maxLength
+	 *            The maximum length of the chains that begin with word.
+	 * @return The total number of distinct words that are part of all chains of
+	 *         maxlength.
+	 */
+	public int reachableFrom(String word, int maxLength) {
+
+		QueryStats stats = this.beginQuery("reachableFrom");
+		try {
+			DistanceTable table = this.trackedWords.get(word);
+			if (table != null) {
+				return table.reachedWithin(maxLength);
+			}
+
+			List<Object> key = Arrays.asList("reachableFrom", word, maxLength);
+			Integer count = (Integer) this.queryCache.get(key);
+			if (count == null) {
+				count = this.getReachableWordsFinder().reachableFrom(word, maxLength);
+				this.queryCache.put(key, count);
+			}
+			return count;
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to return the number of distinct words that are part of all
+	 * chains that begin with word. Assume that a word is always reachable from
+	 * itself
+	 * 
+	 * @param word
+	 *            The word or vertex from which the chains start
+	 * @return The number of distinct words that are part of all chains that
+	 *         begin with word
+	 */
+	public int reachableFrom(String word) {
+
+		// a maximum length of 0 does not limit the length
+		return this.reachableFrom(word, 0);
+	}
+
+	/**
+	 * A method to return a String containing the distinct words that are part
+	 * all chains of maxLength that begin with word. The reachable words should
+	 * be grouped by level, using the format [word] [word1, word2] [word3,
+	 * word4, word5] ... ... [........., wordn]
+	 * 
+	 * @param word
+	 *            The string from which the word chains begin
+	 * @param maxLength
+	 *            The maximum length of the chains of words that begin with word
+	 * @return a string containing the distinct words that are parts of all
+	 *         chains of maxLength that begin with word.
+	 */
+	public String reachableWords(String word, int maxLength) {
+
+		QueryStats stats = this.beginQuery("reachableWords");
+		try {
+			List<Object> key = Arrays.asList("reachableWords", word, maxLength);
+			String words = (String) this.queryCache.get(key);
+			if (words == null) {
+				words = this.getReachableWordsFinder().reachableWords(word, maxLength);
+				this.queryCache.put(key, words);
+			}
+			return words;
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to write the distinct words that are part of all chains of
+	 * maxLength that begin with word to an Appendable, in the same format as
+	 * reachableWords(word, maxLength). Each level is written as soon as it
+	 * is ready, so the whole result is never held in one String.
+	 * 
+	 * @param word
+	 *            The string from which the word chains begin
+	 * @param maxLength
+	 *            The maximum length of the chains of words that begin with word
+	 * @param out
+	 *            The Appendable to write the levels to
+	 * @throws IOException
+	 *             if out cannot be written to
+	 */
+	public void reachableWords(String word, int maxLength, Appendable out) throws IOException {
+
+		QueryStats stats = this.beginQuery("reachableWords");
+		try {
+			this.getReachableWordsFinder().reachableWords(word, maxLength, out);
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to get the levels of reachableWords(word, maxLength) one at a
+	 * time. Every level is found only when it is asked for, so a caller that
+	 * stops early does not pay for the deeper levels. The levels are found
+	 * in the graph as it was when this method was called.
+	 * 
+	 * @param word
+	 *            The string from which the word chains begin
+	 * @param maxLength
+	 *            The maximum length of the chains of words that begin with word
+	 * @return An Iterator giving the sorted words of every level, starting
+	 *         with the list holding only word
+	 */
+	public Iterator<List<String>> reachableWordsByLevel(String word, int maxLength) {
+
+		return new LevelIterator(this.getSnapshot(), word, maxLength);
+	}
+
+	/**
+	 * A method to returns the shortest sequence of word pairs that begin and
+	 * ends with word, using the format below (returns [] if there is no such
+	 * sequence).
+	 * 
+	 * @param word
+	 *            The word or vertex from where the cyckle starts
+	 * @return A string containing the sequence of words that begin and end with
+	 *         word
+	 */
+	public String cycle(String word) {
+
+		QueryStats stats = this.beginQuery("cycle");
+		try {
+			return this.findWordChain(word, word);
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to return the number of word pairs in the shortest chain from
+	 * first to every word in lasts. Only one search is made from first, no
+	 * matter how many words are in lasts.
+	 * 
+	 * @param first
+	 *            The word from which all the chains start
+	 * @param lasts
+	 *            The words where the chains are to end
+	 * @return A map from every word in lasts to the value chainLength(first,
+	 *         last) would return for it, in the order of lasts
+	 */
+	public Map<String, Integer> chainLengths(String first, Collection<String> lasts) {
+
+		QueryStats stats = this.beginQuery("chainLengths");
+		try {
+			DistanceTable table = this.trackedWords.get(first);
+			if (table != null) {
+				Map<String, Integer> lengths = new LinkedHashMap<>();
+				for (String last : lasts) {
+					lengths.put(last, table.chainLength(this.getVertexId(last)));
+				}
+				return lengths;
+			}
+			return this.getWordChainFinder().chainLengths(first, lasts);
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to return the number of word pairs in the shortest chain from
+	 * every word in firsts to every word in lasts. One search is made from
+	 * every distinct word in firsts.
+	 * 
+	 * @param firsts
+	 *            The words from which the chains start
+	 * @param lasts
+	 *            The words where the chains are to end
+	 * @return A map from every word in firsts to a map from every word in
+	 *         lasts to the value chainLength(first, last) would return
+	 */
+	public Map<String, Map<String, Integer>> chainLengths(Collection<String> firsts, Collection<String> lasts) {
+
+		QueryStats stats = this.beginQuery("chainLengths");
+		try {
+			return this.getWordChainFinder().chainLengths(firsts, lasts);
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to return the number of distinct words that are part of all
+	 * chains of each of several maximum lengths that begin with word. Only one
+	 * search is made from word.
+	 * 
+	 * @param word
+	 *            The word or vertex from which the chains start.
+	 * @param maxLengths
+	 *            The maximum lengths of the chains that begin with word.
+	 * @return An array holding, for every maximum length, the value
+	 *         reachableFrom(word, maxLength) would return
+	 */
+	public int[] reachableFrom(String word, int[] maxLengths) {
+
+		QueryStats stats = this.beginQuery("reachableFrom");
+		try {
+			DistanceTable table = this.trackedWords.get(word);
+			if (table != null) {
+				int[] counts = new int[maxLengths.length];
+				for (int i = 0; i < maxLengths.length; i++) {
+					counts[i] = table.reachedWithin(maxLengths[i]);
+				}
+				return counts;
+			}
+			return this.getReachableWordsFinder().reachableFrom(word, maxLengths);
+		} finally {
+			this.endQuery(stats);
+		}
+	}
+
+	/**
+	 * A method to get the number of a vertex
+	 * 
+	 * @param word
+	 *            the vertex
+	 * @return the number of the vertex, -1 if it is not in the graph
+	 */
+	private int getVertexId(String word) {
+
+		// the vertices are only numbered on the heap once the DiGraph is
+		// filled, and until then the snapshot is current
+		if (!this.graphFilled) {
+			return this.snapshot.getId(word);
+		}
+		Integer id = this.vertexIds.get(word);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * A class to read a file of word pairs straight from its bytes. The file
+	 * is memory mapped one window at a time, every line is split on its
+	 * whitespace bytes and the two words are added to the graph, so no
+	 * Scanner or regular expression is made for any line. A file can also be
+	 * cut into chunks of whole lines that are split on several threads at
+	 * once.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class PairFileLoader {
+
+		// The number of bytes of the file mapped at a time
+		private static final int WINDOW = 1 << 26;
+		// The size below which a file is not worth splitting on several
+		// threads
+		private static final int PARALLEL_THRESHOLD = 1 << 20;
+		// The number of bytes read at a time while looking for the line
+		// break that ends a chunk
+		private static final int BOUNDARY_BLOCK = 1 << 16;
+		// The number of chunks split ahead of the one being added to the
+		// graph, for every thread
+		private static final int CHUNKS_AHEAD = 2;
+
+		// An instance variable to hold the number of lines read
+		private long lines = 0;
+		// An instance variable to hold how long the last file took to read
+		private long nanos = 0;
+
+		/**
+		 * A method to read all the lines of a file and add their word pairs
+		 * to the graph
+		 * 
+		 * @param filename
+		 *            The name of the file to read
+		 * @throws IOException
+		 *             if the file cannot be opened or read, or holds a line
+		 *             longer than the largest window that can be mapped
+		 */
+		public void load(String filename) throws IOException {
+
+			long start = System.nanoTime();
+			this.lines = 0;
+
+			try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+
+				long size = channel.size();
+				long position = 0;
+				int window = WINDOW;
+				PairParser parser = new PairParser();
+
+				while (position < size) {
+
+					int length = (int) Math.min(window, size - position);
+					boolean last = position + length == size;
+
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+					int read = parser.readLines(buffer, length, last);
+
+					if (read == 0) {
+						// a single line is longer than the window
+						if (window == Integer.MAX_VALUE) {
+							throw new IOException("A line of the file is too long to map");
+						}
+						window = (int) Math.min(2L * window, Integer.MAX_VALUE);
+					}
+					position += read;
+
+					this.addPairs(parser);
+					parser.clear();
+				}
+			} finally {
+				this.nanos = System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * A method to read all the lines of a file using several threads. The
+		 * file is cut into chunks that end at line breaks and every chunk is
+		 * split into word pairs on a ForkJoinPool. The pairs of every chunk
+		 * are added to the graph as soon as it and the chunks before it are
+		 * split, while the threads split the next ones, so the graph is
+		 * exactly the one load would build. Only a few chunks are split ahead
+		 * of the one being added, which bounds the words held at once.
+		 * 
+		 * @param filename
+		 *            The name of the file to read
+		 * @param threads
+		 *            The number of threads to split the chunks on
+		 * @throws IOException
+		 *             if the file cannot be opened or read
+		 */
+		public void loadParallel(String filename, int threads) throws IOException {
+
+			long start = System.nanoTime();
+			this.lines = 0;
+
+			try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+
+				long size = channel.size();
+
+				if (threads <= 1 || size < PARALLEL_THRESHOLD) {
+					this.load(filename);
+					return;
+				}
+
+				long[] bounds = this.getChunkBounds(channel, size, threads);
+				int chunks = bounds.length - 1;
+				ArrayDeque<Future<PairParser>> pending = new ArrayDeque<>();
+				int submitted = 0;
+
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					while (submitted < chunks || !pending.isEmpty()) {
+						while (submitted < chunks && pending.size() < CHUNKS_AHEAD * threads) {
+							pending.add(pool.submit(
+									this.getChunkTask(channel, bounds[submitted], bounds[submitted + 1])));
+							submitted++;
+						}
+						// the chunks are added in the order of the file
+						this.addPairs(pending.poll().get());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reading " + filename, e);
+				} catch (ExecutionException e) {
+					throw new IOException("Could not read " + filename, e.getCause());
+				} finally {
+					pool.shutdown();
+				}
+			} finally {
+				this.nanos = System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * A method to cut a file into chunks that each end just after a line
+		 * break, which is \n, \r or \r\n, or at the end of the file
+		 * 
+		 * @param channel
+		 *            The channel of the file
+		 * @param size
+		 *            The size of the file
+		 * @param threads
+		 *            The number of threads the chunks are shared between
+		 * @return The positions where the chunks start, followed by the size
+		 *         of the file
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		private long[] getChunkBounds(FileChannel channel, long size, int threads) throws IOException {
+
+			// a few chunks per thread keep all the threads busy to the end
+			long chunks = Math.max(4L * threads, (size + WINDOW - 1) / WINDOW);
+			long chunkSize = (size + chunks - 1) / chunks;
+
+			List<Long> bounds = new ArrayList<>();
+			bounds.add(0L);
+
+			ByteBuffer block = ByteBuffer.allocate(BOUNDARY_BLOCK);
+			long position = chunkSize;
+
+			while (position < size) {
+
+				position = this.findLineEnd(channel, position, size, block);
+
+				if (position >= size) {
+					break;
+				}
+				if (position - bounds.get(bounds.size() - 1) > Integer.MAX_VALUE) {
+					throw new IOException("A chunk of the file is too long to map");
+				}
+				bounds.add(position);
+				position += chunkSize;
+			}
+			if (size - bounds.get(bounds.size() - 1) > Integer.MAX_VALUE) {
+				throw new IOException("A chunk of the file is too long to map");
+			}
+			bounds.add(size);
+
+			long[] array = new long[bounds.size()];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = bounds.get(i);
+			}
+			return array;
+		}
+
+		/**
+		 * A method to find the end of the line break at or after a position,
+		 * reading the file a block at a time. A \r followed by \n is one line
+		 * break, so a chunk never starts with the \n of the line before it.
+		 * 
+		 * @param channel
+		 *            The channel of the file
+		 * @param position
+		 *            The position to start looking from
+		 * @param size
+		 *            The size of the file
+		 * @param block
+		 *            The buffer to read the blocks into
+		 * @return The position just after the line break, or the size of the
+		 *         file if there is none
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		private long findLineEnd(FileChannel channel, long position, long size, ByteBuffer block) throws IOException {
+
+			boolean afterReturn = false;
+
+			while (position < size) {
+
+				block.clear();
+				int read = channel.read(block, position);
+				if (read <= 0) {
+					break;
+				}
+
+				for (int i = 0; i < read; i++) {
+					byte b = block.get(i);
+					if (afterReturn) {
+						// the line ended at the \r, and takes the \n with it
+						return b == '\n' ? position + i + 1 : position + i;
+					}
+					if (b == '\n') {
+						return position + i + 1;
+					}
+					afterReturn = b == '\r';
+				}
+				position += read;
+			}
+			return size;
+		}
+
+		/**
+		 * A method to make a task that splits one chunk of the file into word
+		 * pairs
+		 * 
+		 * @param channel
+		 *            The channel of the file
+		 * @param from
+		 *            The position where the chunk starts
+		 * @param to
+		 *            The position just after the chunk ends
+		 * @return A task that returns the word pairs of the chunk
+		 */
+		private Callable<PairParser> getChunkTask(FileChannel channel, long from, long to) {
+
+			return new Callable<PairParser>() {
+
+				@Override
+				public PairParser call() throws IOException {
+					int length = (int) (to - from);
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+					PairParser parser = new PairParser();
+					// every chunk ends at a line break or at the end of the
+					// file, so its last line is always whole
+					parser.readLines(buffer, length, true);
+					return parser;
+				}
+			};
+		}
+
+		/**
+		 * A method to add all the word pairs split by a parser to the graph
+		 * 
+		 * @param parser
+		 *            The PairParser holding the word pairs
+		 */
+		private void addPairs(PairParser parser) {
+
+			for (int i = 0; i < parser.size(); i++) {
+				WordPairs.this.addPair(parser.getFirst(i), parser.getSecond(i));
+			}
+			this.lines += parser.size();
+		}
+
+		/**
+		 * A method to get the number of lines read from the last file
+		 * 
+		 * @return the number of lines read
+		 */
+		public long getLines() {
+			return this.lines;
+		}
+
+		/**
+		 * A method to get how fast the last file was read
+		 * 
+		 * @return the number of lines read per second
+		 */
+		public double getLinesPerSecond() {
+			return this.nanos == 0 ? 0 : this.lines * 1e9 / this.nanos;
+		}
+	}
+
+	/**
+	 * A class to split the lines of a buffer of bytes into word pairs. The
+	 * pairs are kept in the order of the lines until they are added to the
+	 * graph. Every thread uses its own PairParser.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class PairParser {
+
+		// An instance variable to hold the first word of every line
+		private String[] firsts = new String[1024];
+		// An instance variable to hold the second word of every line
+		private String[] seconds = new String[1024];
+		// An instance variable to hold the number of lines split so far
+		private int size = 0;
+		// An instance variable to hold the bytes of the word being decoded
+		private byte[] wordBytes = new byte[64];
+
+		/**
+		 * A method to read the whole lines in a buffer
+		 * 
+		 * @param buffer
+		 *            The bytes of a window of the file
+		 * @param length
+		 *            The number of bytes in the buffer
+		 * @param last
+		 *            True if the buffer ends at the end of the file
+		 * @return The number of bytes that were read, which ends after the
+		 *         last whole line in the buffer
+		 */
+		public int readLines(ByteBuffer buffer, int length, boolean last) {
+
+			int lineStart = 0;
+
+			for (int i = 0; i < length; i++) {
+
+				byte b = buffer.get(i);
+
+				if (b == '\n' || b == '\r') {
+
+					if (b == '\r') {
+						if (i + 1 == length && !last) {
+							// the \n may be in the next window
+							return lineStart;
+						}
+						if (i + 1 < length && buffer.get(i + 1) == '\n') {
+							this.readLine(buffer, lineStart, i);
+							i++;
+							lineStart = i + 1;
+							continue;
+						}
+					}
+					this.readLine(buffer, lineStart, i);
+					lineStart = i + 1;
+				}
+			}
+
+			if (last && lineStart < length) {
+				this.readLine(buffer, lineStart, length);
+				lineStart = length;
+			}
+			return lineStart;
+		}
+
+		/**
+		 * A method to split a line into its first two words
+		 * 
+		 * @param buffer
+		 *            The bytes holding the line
+		 * @param from
+		 *            The position where the line starts
+		 * @param to
+		 *            The position just after the line ends
+		 */
+		private void readLine(ByteBuffer buffer, int from, int to) {
+
+			String first = null, second = null;
+
+			int start = this.skipWhitespace(buffer, from, to);
+			int end = this.skipWord(buffer, start, to);
+
+			if (start < end) {
+				first = this.decode(buffer, start, end);
+
+				start = this.skipWhitespace(buffer, end, to);
+				end = this.skipWord(buffer, start, to);
+
+				if (start < end) {
+					second = this.decode(buffer, start, end);
+				}
+			}
+
+			if (this.size == this.firsts.length) {
+				this.firsts = Arrays.copyOf(this.firsts, 2 * this.size);
+				this.seconds = Arrays.copyOf(this.seconds, 2 * this.size);
+			}
+			this.firsts[this.size] = first;
+			this.seconds[this.size] = second;
+			this.size++;
+		}
+
+		/**
+		 * A method to find the first byte that is not whitespace
+		 * 
+		 * @param buffer
+		 *            The bytes holding the line
+		 * @param from
+		 *            The position to start looking from
+		 * @param to
+		 *            The position just after the line ends
+		 * @return The position of the first byte that is not whitespace, or
+		 *         to
+		 */
+		private int skipWhitespace(ByteBuffer buffer, int from, int to) {
+
+			while (from < to && this.isWhitespace(buffer.get(from))) {
+				from++;
+			}
+			return from;
+		}
+
+		/**
+		 * A method to find the end of the word that starts at a position
+		 * 
+		 * @param buffer
+		 *            The bytes holding the line
+		 * @param from
+		 *            The position where the word starts
+		 * @param to
+		 *            The position just after the line ends
+		 * @return The position of the first whitespace byte after the word, or
+		 *         to
+		 */
+		private int skipWord(ByteBuffer buffer, int from, int to) {
+
+			while (from < to && !this.isWhitespace(buffer.get(from))) {
+				from++;
+			}
+			return from;
+		}
+
+		/**
+		 * A method to check whether a byte is an ASCII whitespace character
+		 * 
+		 * @param b
+		 *            The byte to check
+		 * @return True if the byte is a space, tab, form feed or vertical tab
+		 */
+		private boolean isWhitespace(byte b) {
+			return b == ' ' || b == '\t' || b == '\f' || b == 0x0B || b == 0x1C || b == 0x1D || b == 0x1E
+					|| b == 0x1F;
+		}
+
+		/**
+		 * A method to make a String from the UTF-8 bytes of a word
+		 * 
+		 * @param buffer
+		 *            The bytes holding the word
+		 * @param from
+		 *            The position where the word starts
+		 * @param to
+		 *            The position just after the word ends
+		 * @return The word
+		 */
+		private String decode(ByteBuffer buffer, int from, int to) {
+
+			int length = to - from;
+			if (length > this.wordBytes.length) {
+				this.wordBytes = new byte[Math.max(length, 2 * this.wordBytes.length)];
+			}
+			buffer.get(from, this.wordBytes, 0, length);
+			return new String(this.wordBytes, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * A method to get the number of lines split so far
+		 * 
+		 * @return the number of lines
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * A method to get the first word of a line
+		 * 
+		 * @param line
+		 *            The number of the line
+		 * @return The first word, null if the line is empty
+		 */
+		public String getFirst(int line) {
+			return this.firsts[line];
+		}
+
+		/**
+		 * A method to get the second word of a line
+		 * 
+		 * @param line
+		 *            The number of the line
+		 * @return The second word, null if the line has less than two words
+		 */
+		public String getSecond(int line) {
+			return this.seconds[line];
+		}
+
+		/**
+		 * A method to forget all the lines split so far
+		 */
+		public void clear() {
+			Arrays.fill(this.firsts, 0, this.size, null);
+			Arrays.fill(this.seconds, 0, this.size, null);
+			this.size = 0;
+		}
+	}
+
+	/**
+	 * A class to save the results of recent queries, keyed by the name of the
+	 * query and its arguments. It keeps at most capacity results and drops
+	 * the least recently used one when it is full.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class QueryCache {
+
+		// An instance variable to hold the maximum number of saved results
+		private int capacity;
+		// An instance variable to hold the saved results, least recently used
+		// first
+		private LinkedHashMap<List<Object>, Object> results;
+		// An instance variable to count the queries answered from the cache
+		private long hits = 0;
+		// An instance variable to count the queries not found in the cache
+		private long misses = 0;
+		// An instance variable to count the results dropped when full
+		private long evictions = 0;
+
+		/**
+		 * An argument constructor to create a new empty QueryCache
+		 * 
+		 * @param capacity
+		 *            The maximum number of results to save, 0 to save none
+		 */
+		public QueryCache(int capacity) {
+
+			this.capacity = capacity;
+			this.results = new LinkedHashMap<List<Object>, Object>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+					if (this.size() > QueryCache.this.capacity) {
+						QueryCache.this.evictions++;
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * A method to get a saved result
+		 * 
+		 * @param key
+		 *            The name of the query followed by its arguments
+		 * @return The saved result, null if there is none
+		 */
+		public Object get(List<Object> key) {
+
+			if (this.capacity == 0) {
+				return null;
+			}
+			Object result = this.results.get(key);
+			if (result == null) {
+				this.misses++;
+			} else {
+				this.hits++;
+			}
+			return result;
+		}
+
+		/**
+		 * A method to save a result
+		 * 
+		 * @param key
+		 *            The name of the query followed by its arguments
+		 * @param result
+		 *            The result of the query
+		 */
+		public void put(List<Object> key, Object result) {
+
+			if (this.capacity > 0) {
+				this.results.put(key, result);
+			}
+		}
+
+		/**
+		 * A method to drop all the saved results
+		 */
+		public void clear() {
+
+			this.results.clear();
+		}
+
+		/**
+		 * A method to change the maximum number of saved results, dropping the
+		 * least recently used results that no longer fit
+		 * 
+		 * @param capacity
+		 *            The maximum number of results to save, 0 to save none
+		 * @throws IllegalArgumentException
+		 *             if capacity is negative
+		 */
+		public void setCapacity(int capacity) {
+
+			if (capacity < 0) {
+				throw new IllegalArgumentException("The capacity cannot be negative");
+			}
+			this.capacity = capacity;
+			Iterator<List<Object>> it = this.results.keySet().iterator();
+			while (this.results.size() > capacity) {
+				it.next();
+				it.remove();
+				this.evictions++;
+			}
+		}
+
+		/**
+		 * A method to get the number of queries answered from the cache
+		 * 
+		 * @return the number of hits
+		 */
+		public long getHits() {
+			return this.hits;
+		}
+
+		/**
+		 * A method to get the number of queries not found in the cache
+		 * 
+		 * @return the number of misses
+		 */
+		public long getMisses() {
+			return this.misses;
+		}
+
+		/**
+		 * A method to get the number of results dropped when the cache was
+		 * full
+		 * 
+		 * @return the number of evictions
+		 */
+		public long getEvictions() {
+			return this.evictions;
+		}
+	}
+
+	/**
+	 * A class to represent a frozen, read-only copy of the DiGraph. Every word
+	 * is given a number from 0 to size() - 1, and the adjacent words of all the
+	 * words are stored one after the other in a single array of numbers, so
+	 * the queries can walk the graph without hashing any Strings.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class WordGraph {
+
+		// An instance variable to map every word to its number
+		private Map<String, Integer> ids;
+		// An instance variable to map every number back to its word
+		private String[] words;
+		// An instance variable to hold where the adjacent words of every word
+		// start in the targets array. The adjacent words of word v are at
+		// targets[offsets[v]] up to targets[offsets[v + 1] - 1]
+		private int[] offsets;
+		// An instance variable to hold the adjacent words of all the words
+		private int[] targets;
+		// An instance variable to hold where the words that have an edge to
+		// every word start in the sources array, null until the reverse
+		// index is built
+		private int[] reverseOffsets;
+		// An instance variable to hold the words that have an edge to every
+		// word, null until the reverse index is built
+		private int[] sources;
+
+		/**
+		 * An argument constructor to create a new WordGraph from a DiGraph.
+		 * The adjacent words of every word are kept in the order the DiGraph
+		 * gives them, so the queries return the same chains as on the DiGraph.
+		 * 
+		 * @param graph
+		 *            The DiGraph to copy
+		 * @param vertices
+		 *            All the vertices of the DiGraph in the order they were
+		 *            added
+		 */
+		public WordGraph(DiGraph graph, List<String> vertices) {
+
+			int size = vertices.size();
+
+			this.words = vertices.toArray(new String[size]);
+			this.ids = new HashMap<>(size * 2);
+			for (int i = 0; i < size; i++) {
+				this.ids.put(this.words[i], i);
+			}
+
+			int edges = 0;
+			for (int i = 0; i < size; i++) {
+				edges += graph.getAdjacent(this.words[i]).size();
+			}
+
+			this.offsets = new int[size + 1];
+			this.targets = new int[edges];
+
+			int edge = 0;
+			for (int i = 0; i < size; i++) {
+				this.offsets[i] = edge;
+				Iterator<String> it = graph.getAdjacent(this.words[i]).iterator();
+				while (it.hasNext()) {
+					this.targets[edge++] = this.ids.get(it.next());
+				}
+			}
+			this.offsets[size] = edge;
+		}
+
+		/**
+		 * A constructor for the WordGraphs that keep their words and pairs
+		 * somewhere else than in the arrays of this class
+		 */
+		protected WordGraph() {
+		}
+
+		/**
+		 * An argument constructor to create a WordGraph from arrays that
+		 * were saved from another WordGraph
+		 * 
+		 * @param words
+		 *            The words, in the order of their numbers
+		 * @param offsets
+		 *            Where the adjacent words of every word start in targets
+		 * @param targets
+		 *            The adjacent words of all the words
+		 */
+		public WordGraph(String[] words, int[] offsets, int[] targets) {
+
+			this.words = words;
+			this.ids = new HashMap<>(words.length * 2);
+			for (int i = 0; i < words.length; i++) {
+				this.ids.put(words[i], i);
+			}
+			this.offsets = offsets;
+			this.targets = targets;
+		}
+
+		/**
+		 * A method to get the number of words in this WordGraph
+		 * 
+		 * @return the number of words
+		 */
+		public int size() {
+			return this.words.length;
+		}
+
+		/**
+		 * A method to get the number of word pairs in this WordGraph
+		 * 
+		 * @return the number of word pairs
+		 */
+		public int edgeCount() {
+			return this.targets.length;
+		}
+
+		/**
+		 * A method to get the number of a word
+		 * 
+		 * @param word
+		 *            The word whose number is to be found
+		 * @return The number of the word, -1 if the word is not in the graph
+		 */
+		public int getId(String word) {
+			Integer id = this.ids.get(word);
+			return id == null ? -1 : id;
+		}
+
+		/**
+		 * A method to get the word with a number
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The word with the number id
+		 */
+		public String getWord(int id) {
+			return this.words[id];
+		}
+
+		/**
+		 * A method to get the position of the first adjacent word of a word
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the targets of the first adjacent word
+		 */
+		public int firstEdge(int id) {
+			return this.offsets[id];
+		}
+
+		/**
+		 * A method to get the position just after the last adjacent word of a
+		 * word
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the targets just after the last adjacent
+		 *         word
+		 */
+		public int endEdge(int id) {
+			return this.offsets[id + 1];
+		}
+
+		/**
+		 * A method to build the reverse index, which lists for every word the
+		 * words that have an edge to it. The index is only built once.
+		 */
+		public void buildReverseIndex() {
+
+			if (this.sources != null) {
+				return;
+			}
+
+			int size = this.size();
+			int[] reverseOffsets = new int[size + 1];
+			int[] sources = new int[this.targets.length];
+
+			// count the edges into every word
+			for (int edge = 0; edge < this.targets.length; edge++) {
+				reverseOffsets[this.targets[edge] + 1]++;
+			}
+			for (int i = 0; i < size; i++) {
+				reverseOffsets[i + 1] += reverseOffsets[i];
+			}
+
+			// place every edge after the edges already placed for its target
+			int[] next = Arrays.copyOf(reverseOffsets, size);
+			for (int i = 0; i < size; i++) {
+				for (int edge = this.offsets[i]; edge < this.offsets[i + 1]; edge++) {
+					sources[next[this.targets[edge]]++] = i;
+				}
+			}
+
+			this.reverseOffsets = reverseOffsets;
+			this.sources = sources;
+		}
+
+		/**
+		 * A method to get the position of the first word that has an edge to a
+		 * word. The reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the sources of the first word that has an
+		 *         edge to the word
+		 */
+		public int firstReverseEdge(int id) {
+			return this.reverseOffsets[id];
+		}
+
+		/**
+		 * A method to get the position just after the last word that has an
+		 * edge to a word. The reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the sources just after the last word that
+		 *         has an edge to the word
+		 */
+		public int endReverseEdge(int id) {
+			return this.reverseOffsets[id + 1];
+		}
+
+		/**
+		 * A method to get the array loadAdjacent puts the adjacent words in,
+		 * which for this WordGraph is the targets themselves
+		 * 
+		 * @param buffer
+		 *            An array getBufferSize() long, used by the WordGraphs
+		 *            that have to copy or decode the adjacent words
+		 * @return The array holding the adjacent words
+		 */
+		public int[] getTargets(int[] buffer) {
+			return this.targets;
+		}
+
+		/**
+		 * A method to make the adjacent words of a word ready to be read from
+		 * getTargets(buffer). They are there from the position returned up to
+		 * the position endEdge(id) - firstEdge(id) after it.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param buffer
+		 *            An array getBufferSize() long, used by the WordGraphs
+		 *            that have to copy or decode the adjacent words
+		 * @return The position of the first adjacent word
+		 */
+		public int loadAdjacent(int id, int[] buffer) {
+			return this.offsets[id];
+		}
+
+		/**
+		 * A method to get the array loadReverseAdjacent puts the words that
+		 * have an edge to a word in, which for this WordGraph is the sources
+		 * themselves. The reverse index must have been built.
+		 * 
+		 * @param buffer
+		 *            An array getBufferSize() long, used by the WordGraphs
+		 *            that have to copy or decode the words
+		 * @return The array holding the words that have an edge to a word
+		 */
+		public int[] getSources(int[] buffer) {
+			return this.sources;
+		}
+
+		/**
+		 * A method to make the words that have an edge to a word ready to be
+		 * read from getSources(buffer). They are there from the position
+		 * returned up to the position endReverseEdge(id) -
+		 * firstReverseEdge(id) after it. The reverse index must have been
+		 * built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param buffer
+		 *            An array getBufferSize() long, used by the WordGraphs
+		 *            that have to copy or decode the words
+		 * @return The position of the first word that has an edge to the word
+		 */
+		public int loadReverseAdjacent(int id, int[] buffer) {
+			return this.reverseOffsets[id];
+		}
+
+		/**
+		 * A method to get how long the arrays given to loadAdjacent and
+		 * loadReverseAdjacent must be
+		 * 
+		 * @return The length of the arrays, 0 since this WordGraph needs none
+		 */
+		public int getBufferSize() {
+			return 0;
+		}
+
+		/**
+		 * A method to get how many bytes the adjacent words of all the words
+		 * take, not counting the position of the first pair of every word
+		 * 
+		 * @return The number of bytes
+		 */
+		public long getAdjacencyBytes() {
+			return 4L * this.edgeCount();
+		}
+
+		/**
+		 * A method to get a WordGraph holding the same words and pairs whose
+		 * adjacent words are kept in an array of ints
+		 * 
+		 * @return This WordGraph
+		 */
+		public WordGraph uncompressed() {
+			return this;
+		}
+	}
+
+	/**
+	 * A method to expand part of one level of a search. Every adjacent word
+	 * that has not been reached yet is given the next level and added to the
+	 * next level's words.
+	 * 
+	 * @param graph
+	 *            The WordGraph being searched
+	 * @param frontier
+	 *            The words of the current level
+	 * @param from
+	 *            The position in frontier of the first word to expand
+	 * @param to
+	 *            The position in frontier just after the last word to expand
+	 * @param level
+	 *            The current level
+	 * @param levels
+	 *            The level of every word, -1 for the words not reached yet
+	 * @param shared
+	 *            True if other threads are expanding the same level, so every
+	 *            word has to be claimed with a compare and set
+	 * @return The words reached for the first time, in the order they were
+	 *         reached
+	 */
+	private static int[] expandFrontier(WordGraph graph, int[] frontier, int from, int to, int level, int[] levels,
+			boolean shared) {
+
+		int[] next = new int[Math.max(16, to - from)];
+		int[] adjacent = new int[graph.getBufferSize()];
+		int size = 0;
+
+		for (int i = from; i < to; i++) {
+			int word = frontier[i];
+			int start = graph.loadAdjacent(word, adjacent);
+			int stop = start + graph.endEdge(word) - graph.firstEdge(word);
+			int[] targets = graph.getTargets(adjacent);
+			for (int e = start; e < stop; e++) {
+				int child = targets[e];
+				boolean claimed;
+				if (shared) {
+					claimed = levels[child] < 0 && LEVELS.compareAndSet(levels, child, -1, level + 1);
+				} else {
+					claimed = levels[child] < 0;
+					if (claimed) {
+						levels[child] = level + 1;
+					}
+				}
+				if (claimed) {
+					if (size == next.length) {
+						next = Arrays.copyOf(next, 2 * size);
+					}
+					next[size++] = child;
+				}
+			}
+		}
+		return Arrays.copyOf(next, size);
+	}
+
+	/**
+	 * A method to search part of one level bottom-up. Every word in the part
+	 * that has not been reached yet looks through the words that lead to it,
+	 * and is given the next level as soon as one of them is in the current
+	 * level. Only the words of the part are changed, so parts can be searched
+	 * on different threads without claiming words.
+	 * 
+	 * @param graph
+	 *            The WordGraph being searched, with its reverse index built
+	 * @param from
+	 *            The number of the first word of the part
+	 * @param to
+	 *            The number just after the last word of the part
+	 * @param level
+	 *            The current level
+	 * @param levels
+	 *            The level of every word, -1 for the words not reached yet
+	 * @return The words of the part reached for the first time
+	 */
+	private static int[] expandBottomUp(WordGraph graph, int from, int to, int level, int[] levels) {
+
+		int[] next = new int[16];
+		int[] adjacent = new int[graph.getBufferSize()];
+		int size = 0;
+
+		for (int word = from; word < to; word++) {
+			if (levels[word] >= 0) {
+				continue;
+			}
+			int start = graph.loadReverseAdjacent(word, adjacent);
+			int stop = start + graph.endReverseEdge(word) - graph.firstReverseEdge(word);
+			int[] sources = graph.getSources(adjacent);
+			for (int e = start; e < stop; e++) {
+				if (levels[sources[e]] == level) {
+					levels[word] = level + 1;
+					if (size == next.length) {
+						next = Arrays.copyOf(next, 2 * size);
+					}
+					next[size++] = word;
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(next, size);
+	}
+
+	/**
+	 * A method to get the words of a WordGraph in the order of their
+	 * numbers
+	 * 
+	 * @param graph
+	 *            The WordGraph
+	 * @return The words
+	 */
+	private static String[] getWords(WordGraph graph) {
+
+		String[] words = new String[graph.size()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = graph.getWord(i);
+		}
+		return words;
+	}
+
+	/**
+	 * A method to get where the adjacent words of every word of a
+	 * WordGraph start
+	 * 
+	 * @param graph
+	 *            The WordGraph
+	 * @return The position of the first adjacent word of every word,
+	 *         followed by the number of pairs
+	 */
+	private static int[] getOffsets(WordGraph graph) {
+
+		int[] offsets = new int[graph.size() + 1];
+		for (int i = 0; i < graph.size(); i++) {
+			offsets[i] = graph.firstEdge(i);
+		}
+		offsets[graph.size()] = graph.edgeCount();
+		return offsets;
+	}
+
+	/**
+	 * A class to save a WordGraph to a binary file and to open it again by
+	 * memory mapping the file, so a graph can be opened without reading the
+	 * text file of pairs again. The file starts with a header holding a
+	 * magic number, the version of the format, the length and time of last
+	 * change of the text file it was made from, the numbers of words and
+	 * pairs, the number of the null word and a CRC32 checksum of the rest of
+	 * the file. The rest holds the UTF-8 bytes of the words and the arrays of
+	 * the WordGraph, all in little-endian order. The null word, which a line
+	 * with fewer than two words adds to the graph, has no bytes, and the
+	 * header holds its number, or -1 if the graph has no null word. A file
+	 * whose header does not match is not opened.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class SnapshotFile {
+
+		// The number at the start of every snapshot file, "WPS1"
+		private static final int MAGIC = 0x57505331;
+		// The version of the format of the file
+		private static final int VERSION = 2;
+		// The number of bytes in the header
+		private static final int HEADER = 56;
+		// The number of bytes copied from the file at a time
+		private static final int WINDOW = 1 << 26;
+
+		// An instance variable to hold the name of the snapshot file
+		private String filename;
+
+		/**
+		 * An argument constructor to create a new SnapshotFile
+		 * 
+		 * @param filename
+		 *            The name of the snapshot file
+		 */
+		public SnapshotFile(String filename) {
+			this.filename = filename;
+		}
+
+		/**
+		 * A method to save a WordGraph to the snapshot file
+		 * 
+		 * @param graph
+		 *            The WordGraph to save
+		 * @param source
+		 *            The name of the text file the graph was read from
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		public void write(WordGraph graph, String source) throws IOException {
+
+			int size = graph.size();
+
+			byte[][] wordBytes = new byte[size][];
+			int[] wordOffsets = new int[size + 1];
+			long stringBytes = 0;
+			int nullWord = -1;
+			for (int i = 0; i < size; i++) {
+				String word = graph.getWord(i);
+				if (word == null) {
+					// the null word is saved with no bytes and its number
+					// in the header
+					nullWord = i;
+					wordBytes[i] = new byte[0];
+				} else {
+					wordBytes[i] = word.getBytes(StandardCharsets.UTF_8);
+				}
+				stringBytes += wordBytes[i].length;
+				if (stringBytes > Integer.MAX_VALUE) {
+					throw new IOException("The words are too long to save");
+				}
+				wordOffsets[i + 1] = (int) stringBytes;
+			}
+
+			File file = new File(source);
+			CRC32 checksum = new CRC32();
+
+			try (FileChannel channel = FileChannel.open(Paths.get(this.filename), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+				ByteBuffer buffer = ByteBuffer.allocate(WINDOW).order(ByteOrder.LITTLE_ENDIAN);
+				channel.position(HEADER);
+
+				this.writeInts(channel, buffer, checksum, wordOffsets);
+				for (int i = 0; i < size; i++) {
+					if (buffer.remaining() < wordBytes[i].length) {
+						this.flush(channel, buffer, checksum);
+					}
+					if (wordBytes[i].length > buffer.capacity()) {
+						checksum.update(wordBytes[i]);
+						ByteBuffer word = ByteBuffer.wrap(wordBytes[i]);
+						while (word.hasRemaining()) {
+							channel.write(word);
+						}
+					} else {
+						buffer.put(wordBytes[i]);
+					}
+				}
+				int[] offsets = new int[size + 1];
+				for (int i = 0; i <= size; i++) {
+					offsets[i] = i < size ? graph.firstEdge(i) : graph.edgeCount();
+				}
+				this.writeInts(channel, buffer, checksum, offsets);
+				this.writeTargets(channel, buffer, checksum, graph);
+				this.flush(channel, buffer, checksum);
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putLong(file.length());
+				header.putLong(file.lastModified());
+				header.putInt(size);
+				header.putInt(graph.edgeCount());
+				header.putLong(stringBytes);
+				header.putLong(nullWord);
+				header.putLong(checksum.getValue());
+				header.flip();
+				channel.write(header, 0);
+			}
+		}
+
+		/**
+		 * A method to add an array of ints to the bytes being written
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param buffer
+		 *            The bytes waiting to be written
+		 * @param checksum
+		 *            The checksum of the bytes written so far
+		 * @param values
+		 *            The ints to write
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		private void writeInts(FileChannel channel, ByteBuffer buffer, CRC32 checksum, int[] values)
+				throws IOException {
+
+			int written = 0;
+			while (written < values.length) {
+				if (buffer.remaining() < 4) {
+					this.flush(channel, buffer, checksum);
+				}
+				int count = Math.min(values.length - written, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(values, written, count);
+				buffer.position(buffer.position() + 4 * count);
+				written += count;
+			}
+		}
+
+		/**
+		 * A method to add the adjacent words of all the words to the bytes
+		 * being written, without copying them into one array first
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param buffer
+		 *            The bytes waiting to be written
+		 * @param checksum
+		 *            The checksum of the bytes written so far
+		 * @param graph
+		 *            The WordGraph whose adjacent words are written
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		private void writeTargets(FileChannel channel, ByteBuffer buffer, CRC32 checksum, WordGraph graph)
+				throws IOException {
+
+			int[] adjacent = new int[graph.getBufferSize()];
+			for (int i = 0; i < graph.size(); i++) {
+				int start = graph.loadAdjacent(i, adjacent);
+				int stop = start + graph.endEdge(i) - graph.firstEdge(i);
+				int[] targets = graph.getTargets(adjacent);
+				for (int e = start; e < stop; e++) {
+					if (buffer.remaining() < 4) {
+						this.flush(channel, buffer, checksum);
+					}
+					buffer.putInt(targets[e]);
+				}
+			}
+		}
+
+		/**
+		 * A method to write the bytes waiting in a buffer and add them to the
+		 * checksum
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param buffer
+		 *            The bytes waiting to be written
+		 * @param checksum
+		 *            The checksum of the bytes written so far
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		private void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+
+			buffer.flip();
+			checksum.update(buffer.duplicate());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * A method to open the snapshot file if it was made from the current
+		 * version of a text file
+		 * 
+		 * @param source
+		 *            The name of the text file the snapshot should have been
+		 *            made from
+		 * @return The WordGraph saved in the file, or null if the file does
+		 *         not exist, has another format, was made from another
+		 *         version of the text file or does not match its checksum
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		public WordGraph readIfCurrent(String source) throws IOException {
+
+			if (!Files.exists(Paths.get(this.filename))) {
+				return null;
+			}
+
+			try (FileChannel channel = FileChannel.open(Paths.get(this.filename), StandardOpenOption.READ)) {
+
+				long[] header = this.readHeader(channel, source);
+				if (header == null) {
+					return null;
+				}
+				int size = (int) header[0];
+				int edges = (int) header[1];
+				long stringBytes = header[2];
+				long expected = header[3];
+				long nullWord = header[4];
+
+				CRC32 checksum = new CRC32();
+				long position = HEADER;
+
+				int[] wordOffsets = this.readInts(channel, position, size + 1, checksum);
+				position += 4L * (size + 1);
+				byte[] strings = this.readBytes(channel, position, (int) stringBytes, checksum);
+				position += stringBytes;
+				int[] offsets = this.readInts(channel, position, size + 1, checksum);
+				position += 4L * (size + 1);
+				int[] targets = this.readInts(channel, position, edges, checksum);
+
+				if (checksum.getValue() != expected) {
+					return null;
+				}
+
+				String[] words = new String[size];
+				for (int i = 0; i < size; i++) {
+					if (i != nullWord) {
+						words[i] = new String(strings, wordOffsets[i], wordOffsets[i + 1] - wordOffsets[i],
+								StandardCharsets.UTF_8);
+					}
+				}
+				return new WordGraph(words, offsets, targets);
+			}
+		}
+
+		/**
+		 * A method to open the snapshot file if it was made from the current
+		 * version of a text file, and keep it memory mapped instead of
+		 * copying it onto the heap. The whole file is read once to check its
+		 * checksum.
+		 * 
+		 * @param source
+		 *            The name of the text file the snapshot should have been
+		 *            made from
+		 * @return A WordGraph reading the mapped file, or null if the file
+		 *         does not exist, has another format, was made from another
+		 *         version of the text file or does not match its checksum
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		public WordGraph mapIfCurrent(String source) throws IOException {
+
+			if (!Files.exists(Paths.get(this.filename))) {
+				return null;
+			}
+
+			try (FileChannel channel = FileChannel.open(Paths.get(this.filename), StandardOpenOption.READ)) {
+
+				long[] header = this.readHeader(channel, source);
+				if (header == null) {
+					return null;
+				}
+
+				CRC32 checksum = new CRC32();
+				for (long position = HEADER; position < channel.size(); position += WINDOW) {
+					long length = Math.min(WINDOW, channel.size() - position);
+					checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+				}
+				if (checksum.getValue() != header[3]) {
+					return null;
+				}
+
+				// the mapped buffers stay valid after the channel is closed
+				return new MappedWordGraph(channel, (int) header[0], (int) header[1], header[2], (int) header[4]);
+			}
+		}
+
+		/**
+		 * A method to read and check the header of the snapshot file
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param source
+		 *            The name of the text file the snapshot should have been
+		 *            made from
+		 * @return The number of words, the number of pairs, the number of
+		 *         bytes of the words, the checksum and the number of the null
+		 *         word, or null if the header does not match the format, the
+		 *         text file or the length of the snapshot file
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		private long[] readHeader(FileChannel channel, String source) throws IOException {
+
+			if (channel.size() < HEADER) {
+				return null;
+			}
+
+			File file = new File(source);
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				return null;
+			}
+			if (header.getLong() != file.length() || header.getLong() != file.lastModified()) {
+				return null;
+			}
+
+			int size = header.getInt();
+			int edges = header.getInt();
+			long stringBytes = header.getLong();
+			long nullWord = header.getLong();
+			long expected = header.getLong();
+
+			if (channel.size() != HEADER + 4L * (size + 1) + stringBytes + 4L * (size + 1) + 4L * edges) {
+				return null;
+			}
+			if (nullWord < -1 || nullWord >= size) {
+				return null;
+			}
+
+			return new long[] { size, edges, stringBytes, expected, nullWord };
+		}
+
+		/**
+		 * A method to copy an array of ints out of the mapped file
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param position
+		 *            The position of the first int in the file
+		 * @param count
+		 *            The number of ints to copy
+		 * @param checksum
+		 *            The checksum of the bytes read so far
+		 * @return The ints
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		private int[] readInts(FileChannel channel, long position, int count, CRC32 checksum) throws IOException {
+
+			int[] values = new int[count];
+			int read = 0;
+			while (read < count) {
+				int length = Math.min(count - read, WINDOW / 4);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * read, 4L * length);
+				checksum.update(buffer.duplicate());
+				buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, read, length);
+				read += length;
+			}
+			return values;
+		}
+
+		/**
+		 * A method to copy an array of bytes out of the mapped file
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param position
+		 *            The position of the first byte in the file
+		 * @param count
+		 *            The number of bytes to copy
+		 * @param checksum
+		 *            The checksum of the bytes read so far
+		 * @return The bytes
+		 * @throws IOException
+		 *             if the file cannot be read
+		 */
+		private byte[] readBytes(FileChannel channel, long position, int count, CRC32 checksum) throws IOException {
+
+			byte[] values = new byte[count];
+			int read = 0;
+			while (read < count) {
+				int length = Math.min(count - read, WINDOW);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + read, length);
+				checksum.update(buffer.duplicate());
+				buffer.get(values, read, length);
+				read += length;
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * A class to hold an array of ints outside the Java heap, either in
+	 * direct memory or in a part of a memory mapped file. The ints are kept
+	 * in chunks of 2^28, so the array can be longer than one ByteBuffer.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class OffHeapInts {
+
+		// The number of bits of a position that select the int in its chunk
+		private static final int CHUNK_SHIFT = 28;
+		// The mask that selects the int in its chunk
+		private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+		// An instance variable to hold the chunks of the array
+		private IntBuffer[] chunks;
+		// An instance variable to hold the number of ints in the array
+		private long length;
+
+		/**
+		 * An argument constructor to create a new OffHeapInts in direct
+		 * memory, with all the ints 0
+		 * 
+		 * @param length
+		 *            The number of ints
+		 */
+		public OffHeapInts(long length) {
+
+			this.length = length;
+			this.chunks = new IntBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+			for (int c = 0; c < this.chunks.length; c++) {
+				long count = Math.min(1L << CHUNK_SHIFT, length - ((long) c << CHUNK_SHIFT));
+				this.chunks[c] = ByteBuffer.allocateDirect((int) (4 * count)).order(ByteOrder.LITTLE_ENDIAN)
+						.asIntBuffer();
+			}
+		}
+
+		/**
+		 * An argument constructor to create a new OffHeapInts that reads a
+		 * part of a file of little-endian ints
+		 * 
+		 * @param channel
+		 *            The channel of the file
+		 * @param position
+		 *            The position of the first int in the file
+		 * @param length
+		 *            The number of ints
+		 * @throws IOException
+		 *             if the file cannot be mapped
+		 */
+		public OffHeapInts(FileChannel channel, long position, long length) throws IOException {
+
+			this.length = length;
+			this.chunks = new IntBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+			for (int c = 0; c < this.chunks.length; c++) {
+				long first = (long) c << CHUNK_SHIFT;
+				long count = Math.min(1L << CHUNK_SHIFT, length - first);
+				this.chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * first, 4 * count)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			}
+		}
+
+		/**
+		 * A method to get an int of the array
+		 * 
+		 * @param index
+		 *            The position of the int
+		 * @return The int
+		 */
+		public int get(long index) {
+			return this.chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+		}
+
+		/**
+		 * A method to change an int of an array in direct memory
+		 * 
+		 * @param index
+		 *            The position of the int
+		 * @param value
+		 *            The new value of the int
+		 */
+		public void set(long index, int value) {
+			this.chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+		}
+
+		/**
+		 * A method to get the number of ints in the array
+		 * 
+		 * @return The number of ints
+		 */
+		public long length() {
+			return this.length;
+		}
+
+		/**
+		 * A method to get the number of bytes the array takes outside the heap
+		 * 
+		 * @return The number of bytes
+		 */
+		public long getBytes() {
+			return 4 * this.length;
+		}
+	}
+
+	/**
+	 * A class to represent a WordGraph that keeps everything outside the Java
+	 * heap. The words and the arrays of the graph are read straight from a
+	 * memory mapped snapshot file, and the numbers of the words are found
+	 * with an open addressing hash table in direct memory, which compares
+	 * the UTF-8 bytes of the word being looked up with the bytes in the
+	 * file. The null word has no bytes in the file and is found by the
+	 * number kept in the header instead, as the WordGraph on the heap finds
+	 * it. The reverse index is also built in direct memory. Only the words
+	 * asked for are made into Strings, so the heap used does not grow with
+	 * the size of the graph.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class MappedWordGraph extends WordGraph {
+
+		// The starting hash of the 32-bit FNV-1a hash of the bytes of a word
+		private static final int FNV_BASIS = 0x811c9dc5;
+		// The number every step of the FNV-1a hash is multiplied by
+		private static final int FNV_PRIME = 0x01000193;
+
+		// An instance variable to hold the number of words
+		private int size;
+		// An instance variable to hold the number of the null word, -1 if
+		// there is none
+		private int nullWord;
+		// An instance variable to hold where the UTF-8 bytes of every word
+		// start in the strings
+		private OffHeapInts wordOffsets;
+		// An instance variable to hold the UTF-8 bytes of all the words
+		private ByteBuffer strings;
+		// An instance variable to hold where the adjacent words of every word
+		// start in the targets
+		private OffHeapInts offsets;
+		// An instance variable to hold the adjacent words of all the words
+		private OffHeapInts targets;
+		// An instance variable to hold the number of every word plus one at
+		// the slot its hash leads to, or the slot after if that one is taken,
+		// 0 in the slots not taken
+		private OffHeapInts slots;
+		// An instance variable to hold where the words that have an edge to
+		// every word start in the sources, null until the reverse index is
+		// built
+		private OffHeapInts reverseOffsets;
+		// An instance variable to hold the words that have an edge to every
+		// word, null until the reverse index is built
+		private OffHeapInts sources;
+		// An instance variable to hold the most words adjacent to one word or
+		// leading to one word, 0 until it is first asked for
+		private int bufferSize = 0;
+
+		/**
+		 * An argument constructor to create a new MappedWordGraph from a
+		 * snapshot file whose header has been checked
+		 * 
+		 * @param channel
+		 *            The channel of the snapshot file
+		 * @param size
+		 *            The number of words
+		 * @param edges
+		 *            The number of word pairs
+		 * @param stringBytes
+		 *            The number of bytes of all the words
+		 * @param nullWord
+		 *            The number of the null word, -1 if there is none
+		 * @throws IOException
+		 *             if the file cannot be mapped
+		 */
+		public MappedWordGraph(FileChannel channel, int size, int edges, long stringBytes, int nullWord)
+				throws IOException {
+
+			long position = SnapshotFile.HEADER;
+
+			this.size = size;
+			this.nullWord = nullWord;
+			this.wordOffsets = new OffHeapInts(channel, position, size + 1);
+			position += 4L * (size + 1);
+			this.strings = channel.map(FileChannel.MapMode.READ_ONLY, position, stringBytes);
+			position += stringBytes;
+			this.offsets = new OffHeapInts(channel, position, size + 1);
+			position += 4L * (size + 1);
+			this.targets = new OffHeapInts(channel, position, edges);
+
+			this.slots = new OffHeapInts(Integer.highestOneBit(Math.max(1, 2 * size - 1)) << 1);
+			long mask = this.slots.length() - 1;
+			for (int id = 0; id < size; id++) {
+				if (id == nullWord) {
+					// the null word has no bytes, so the empty word must not
+					// find it
+					continue;
+				}
+				int start = this.wordOffsets.get(id);
+				int end = this.wordOffsets.get(id + 1);
+				int hash = FNV_BASIS;
+				for (int b = start; b < end; b++) {
+					hash = (hash ^ (this.strings.get(b) & 0xff)) * FNV_PRIME;
+				}
+				long slot = hash & mask;
+				while (this.slots.get(slot) != 0) {
+					slot = (slot + 1) & mask;
+				}
+				this.slots.set(slot, id + 1);
+			}
+		}
+
+		/**
+		 * A method to get the number of words in the snapshot file
+		 * 
+		 * @return the number of words
+		 */
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * A method to get the number of word pairs in the snapshot file
+		 * 
+		 * @return the number of word pairs
+		 */
+		@Override
+		public int edgeCount() {
+			return (int) this.targets.length();
+		}
+
+		/**
+		 * A method to get the number of a word by looking up its UTF-8 bytes
+		 * in the hash table
+		 * 
+		 * @param word
+		 *            The word whose number is to be found, or null
+		 * @return The number of the word, -1 if the word is not in the graph
+		 */
+		@Override
+		public int getId(String word) {
+
+			if (word == null) {
+				return this.nullWord;
+			}
+
+			byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+			int hash = FNV_BASIS;
+			for (byte b : bytes) {
+				hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+			}
+
+			long mask = this.slots.length() - 1;
+			for (long slot = hash & mask;; slot = (slot + 1) & mask) {
+				int id = this.slots.get(slot) - 1;
+				if (id < 0) {
+					return -1;
+				}
+				if (this.hasBytes(id, bytes)) {
+					return id;
+				}
+			}
+		}
+
+		/**
+		 * A method to check whether a word in the file has some UTF-8 bytes
+		 * 
+		 * @param id
+		 *            The number of the word in the file
+		 * @param bytes
+		 *            The bytes to compare with
+		 * @return True if the word has exactly those bytes
+		 */
+		private boolean hasBytes(int id, byte[] bytes) {
+
+			int start = this.wordOffsets.get(id);
+			if (this.wordOffsets.get(id + 1) - start != bytes.length) {
+				return false;
+			}
+			for (int b = 0; b < bytes.length; b++) {
+				if (this.strings.get(start + b) != bytes[b]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * A method to make the word with a number from its bytes in the file
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The word with the number id, null for the null word
+		 */
+		@Override
+		public String getWord(int id) {
+
+			if (id == this.nullWord) {
+				return null;
+			}
+
+			int start = this.wordOffsets.get(id);
+			byte[] bytes = new byte[this.wordOffsets.get(id + 1) - start];
+			this.strings.get(start, bytes, 0, bytes.length);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * A method to get the position of the first adjacent word of a word
+		 * in the mapped targets
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the targets of the first adjacent word
+		 */
+		@Override
+		public int firstEdge(int id) {
+			return this.offsets.get(id);
+		}
+
+		/**
+		 * A method to get the position just after the last adjacent word of a
+		 * word in the mapped targets
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the targets just after the last adjacent
+		 *         word
+		 */
+		@Override
+		public int endEdge(int id) {
+			return this.offsets.get(id + 1);
+		}
+
+		/**
+		 * A method to build the reverse index in direct memory. The index is
+		 * only built once.
+		 */
+		@Override
+		public void buildReverseIndex() {
+
+			if (this.sources != null) {
+				return;
+			}
+
+			int size = this.size;
+			long edges = this.targets.length();
+			OffHeapInts reverseOffsets = new OffHeapInts(size + 1);
+			OffHeapInts sources = new OffHeapInts(edges);
+
+			// count the edges into every word
+			for (long edge = 0; edge < edges; edge++) {
+				int target = this.targets.get(edge) + 1;
+				reverseOffsets.set(target, reverseOffsets.get(target) + 1);
+			}
+			for (int i = 0; i < size; i++) {
+				reverseOffsets.set(i + 1, reverseOffsets.get(i + 1) + reverseOffsets.get(i));
+			}
+
+			// place every edge after the edges already placed for its target,
+			// using the starts of the next word as the next free positions
+			// and moving them back afterwards
+			OffHeapInts next = new OffHeapInts(size);
+			for (int i = 0; i < size; i++) {
+				next.set(i, reverseOffsets.get(i));
+			}
+			for (int i = 0; i < size; i++) {
+				for (int edge = this.offsets.get(i); edge < this.offsets.get(i + 1); edge++) {
+					int target = this.targets.get(edge);
+					int position = next.get(target);
+					sources.set(position, i);
+					next.set(target, position + 1);
+				}
+			}
+
+			this.reverseOffsets = reverseOffsets;
+			this.sources = sources;
+		}
+
+		/**
+		 * A method to get the position of the first word that has an edge to a
+		 * word. The reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the sources of the first word that has an
+		 *         edge to the word
+		 */
+		@Override
+		public int firstReverseEdge(int id) {
+			return this.reverseOffsets.get(id);
+		}
+
+		/**
+		 * A method to get the position just after the last word that has an
+		 * edge to a word. The reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The position in the sources just after the last word that
+		 *         has an edge to the word
+		 */
+		@Override
+		public int endReverseEdge(int id) {
+			return this.reverseOffsets.get(id + 1);
+		}
+
+		/**
+		 * A method to get the array loadAdjacent copies the adjacent words to,
+		 * which for this WordGraph is the buffer
+		 * 
+		 * @param buffer
+		 *            An array getBufferSize() long to copy into
+		 * @return The buffer
+		 */
+		@Override
+		public int[] getTargets(int[] buffer) {
+			return buffer;
+		}
+
+		/**
+		 * A method to copy the adjacent words of a word out of the mapped file
+		 * into the buffer
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param buffer
+		 *            An array getBufferSize() long to copy into
+		 * @return 0, the position of the first adjacent word in the buffer
+		 */
+		@Override
+		public int loadAdjacent(int id, int[] buffer) {
+
+			int first = this.offsets.get(id);
+			int count = this.offsets.get(id + 1) - first;
+			for (int i = 0; i < count; i++) {
+				buffer[i] = this.targets.get(first + i);
+			}
+			return 0;
+		}
+
+		/**
+		 * A method to get the array loadReverseAdjacent copies the words that
+		 * have an edge to a word to, which for this WordGraph is the buffer
+		 * 
+		 * @param buffer
+		 *            An array getBufferSize() long to copy into
+		 * @return The buffer
+		 */
+		@Override
+		public int[] getSources(int[] buffer) {
+			return buffer;
+		}
+
+		/**
+		 * A method to copy the words that have an edge to a word out of direct
+		 * memory into the buffer. The reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param buffer
+		 *            An array getBufferSize() long to copy into
+		 * @return 0, the position of the first word in the buffer
+		 */
+		@Override
+		public int loadReverseAdjacent(int id, int[] buffer) {
+
+			int first = this.reverseOffsets.get(id);
+			int count = this.reverseOffsets.get(id + 1) - first;
+			for (int i = 0; i < count; i++) {
+				buffer[i] = this.sources.get(first + i);
+			}
+			return 0;
+		}
+
+		/**
+		 * A method to get how long the arrays given to loadAdjacent and
+		 * loadReverseAdjacent must be, found the first time it is asked for
+		 * 
+		 * @return The most words adjacent to one word or leading to one word,
+		 *         at least 1
+		 */
+		@Override
+		public int getBufferSize() {
+
+			if (this.bufferSize == 0) {
+				int[] inDegrees = new int[this.size];
+				int largest = 1;
+				for (int i = 0; i < this.size; i++) {
+					largest = Math.max(largest, this.endEdge(i) - this.firstEdge(i));
+				}
+				for (long edge = 0; edge < this.targets.length(); edge++) {
+					largest = Math.max(largest, ++inDegrees[this.targets.get(edge)]);
+				}
+				this.bufferSize = largest;
+			}
+			return this.bufferSize;
+		}
+
+		/**
+		 * A method to get the number of bytes this MappedWordGraph takes
+		 * outside the heap, in the mapped file and in direct memory
+		 * 
+		 * @return The number of bytes
+		 */
+		public long getOffHeapBytes() {
+
+			long bytes = this.wordOffsets.getBytes() + this.strings.capacity() + this.offsets.getBytes()
+					+ this.targets.getBytes() + this.slots.getBytes();
+			if (this.sources != null) {
+				bytes += this.reverseOffsets.getBytes() + this.sources.getBytes();
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * A class to represent a WordGraph whose adjacent words are compressed.
+	 * The adjacent words of every word are sorted and stored as the gaps
+	 * between them, each written in as few bytes as it needs, seven bits to a
+	 * byte. The first one is stored as its distance from the word itself,
+	 * since pairs often join words read close together. With reference
+	 * compression a list may also copy the words it shares with one of the
+	 * few lists just before it, marking them with one bit each, and only
+	 * store the rest as gaps. Every list then also stores which list it
+	 * copies from, so references are only kept when they take fewer bytes
+	 * than the gaps alone. Only where every fourth list starts is saved, and
+	 * the lists before a word in its group of four are skipped to reach its
+	 * own. The lists are decoded with loadAdjacent.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class CompressedWordGraph extends WordGraph {
+
+		// The number of lists just before a list that it may copy from
+		private static final int REFERENCE_WINDOW = 7;
+		// The longest chain of lists that copy from each other, which bounds
+		// the lists decoded to get one
+		private static final int MAX_REFERENCE_CHAIN = 3;
+		// The number of bits of the number of a word that select it among
+		// the words sharing a saved position. Only the position of every
+		// fourth list is saved, and the lists before a word are skipped
+		private static final int SAMPLE_SHIFT = 2;
+
+		// An instance variable to hold whether the lists may copy from other
+		// lists
+		private boolean references;
+		// An instance variable to hold the encoded adjacent words of all the
+		// words
+		private byte[] data;
+		// An instance variable to hold where the encoded list of every fourth
+		// word starts in the data
+		private int[] positions;
+		// An instance variable to hold the number of word pairs
+		private int edges;
+		// An instance variable to hold the most words adjacent to one word
+		private int maxDegree;
+		// An instance variable to hold the most words leading to one word
+		private int maxInDegree;
+		// An instance variable to hold where the words that have an edge to
+		// every word start, null until the reverse index is built
+		private int[] reverseOffsets;
+		// An instance variable to hold the encoded words that have an edge
+		// to every word, null until the reverse index is built
+		private byte[] reverseData;
+		// An instance variable to hold where the encoded list of the words
+		// that have an edge to every fourth word starts in the reverseData
+		private int[] reversePositions;
+		// An instance variable to hold the bytes written while encoding
+		private byte[] encoded;
+		// An instance variable to hold the number of bytes written while
+		// encoding
+		private int encodedLength;
+
+		/**
+		 * An argument constructor to create a new CompressedWordGraph holding
+		 * the same words and pairs as another WordGraph
+		 * 
+		 * @param graph
+		 *            The WordGraph to compress
+		 * @param references
+		 *            True to let the lists copy from the lists just before
+		 *            them if that takes fewer bytes, false to only store gaps
+		 */
+		public CompressedWordGraph(WordGraph graph, boolean references) {
+
+			super(getWords(graph), getOffsets(graph), null);
+
+			this.edges = graph.edgeCount();
+			long gapsOnly = this.encode(graph, references);
+			if (references && this.data.length >= gapsOnly) {
+				this.encode(graph, false);
+			}
+		}
+
+		/**
+		 * A method to encode the adjacent words of all the words of a
+		 * WordGraph
+		 * 
+		 * @param graph
+		 *            The WordGraph to compress
+		 * @param references
+		 *            True to let the lists copy from the lists just before
+		 *            them, false to only store gaps
+		 * @return The number of bytes the lists would take stored as gaps
+		 *         only
+		 */
+		private long encode(WordGraph graph, boolean references) {
+
+			int size = graph.size();
+			this.references = references;
+			this.maxDegree = 0;
+			this.maxInDegree = 0;
+			this.positions = new int[(size >>> SAMPLE_SHIFT) + 1];
+			this.encoded = new byte[Math.max(16, this.edges)];
+			this.encodedLength = 0;
+			long gapsOnly = 0;
+
+			int[] inDegrees = new int[size];
+			int[][] window = new int[REFERENCE_WINDOW + 1][];
+			int[] chains = references ? new int[size] : null;
+			int[] buffer = new int[graph.getBufferSize()];
+
+			for (int v = 0; v < size; v++) {
+
+				int start = graph.loadAdjacent(v, buffer);
+				int degree = graph.endEdge(v) - graph.firstEdge(v);
+				int[] list = Arrays.copyOfRange(graph.getTargets(buffer), start, start + degree);
+				Arrays.sort(list);
+				window[v % window.length] = list;
+				this.maxDegree = Math.max(this.maxDegree, degree);
+				for (int target : list) {
+					this.maxInDegree = Math.max(this.maxInDegree, ++inDegrees[target]);
+				}
+
+				if ((v & ((1 << SAMPLE_SHIFT) - 1)) == 0) {
+					this.positions[v >>> SAMPLE_SHIFT] = this.encodedLength;
+				}
+				if (references && degree > 0) {
+					// without references a list does not need the byte that
+					// marks it as copying from none
+					gapsOnly += this.gapBytes(v, list, null) - 1;
+					int reference = this.chooseReference(v, list, window, chains);
+					this.writeList(v, list, reference < 0 ? null : window[reference % window.length], v - reference);
+					chains[v] = reference < 0 ? 0 : chains[reference] + 1;
+				} else {
+					this.writeGaps(v, list, 0, list.length);
+				}
+			}
+
+			this.data = Arrays.copyOf(this.encoded, this.encodedLength);
+			this.encoded = null;
+			return references ? gapsOnly : this.data.length;
+		}
+
+		/**
+		 * A method to choose the list a list copies from, the one of the few
+		 * lists before it that makes it shortest
+		 * 
+		 * @param v
+		 *            The number of the word of the list
+		 * @param list
+		 *            The sorted adjacent words of the word
+		 * @param window
+		 *            The sorted lists of the words just before it
+		 * @param chains
+		 *            The number of lists every list copies through
+		 * @return The number of the word whose list to copy from, -1 to copy
+		 *         from none
+		 */
+		private int chooseReference(int v, int[] list, int[][] window, int[] chains) {
+
+			int best = -1;
+			int bestBytes = this.gapBytes(v, list, null);
+
+			for (int u = v - 1; u >= 0 && u >= v - REFERENCE_WINDOW; u--) {
+				int[] other = window[u % window.length];
+				if (other.length == 0 || chains[u] >= MAX_REFERENCE_CHAIN) {
+					continue;
+				}
+				int bytes = this.varintBytes(v - u) + (other.length + 7) / 8 + this.gapBytes(v, list, other);
+				if (bytes < bestBytes) {
+					best = u;
+					bestBytes = bytes;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * A method to count the bytes the gaps of a list take
+		 * 
+		 * @param v
+		 *            The number of the word of the list
+		 * @param list
+		 *            The sorted adjacent words of the word
+		 * @param copied
+		 *            The sorted list copied from, whose words are not stored
+		 *            as gaps, or null
+		 * @return The number of bytes of the list copied from, including the
+		 *         one of the reference, or of the list alone
+		 */
+		private int gapBytes(int v, int[] list, int[] copied) {
+
+			int bytes = copied == null ? 1 : 0;
+			int count = 0;
+			int previous = 0;
+			int j = 0;
+			for (int word : list) {
+				while (copied != null && j < copied.length && copied[j] < word) {
+					j++;
+				}
+				if (copied != null && j < copied.length && copied[j] == word) {
+					continue;
+				}
+				bytes += this.varintBytes(count == 0 ? this.zigzag(word - v) : word - previous - 1);
+				previous = word;
+				count++;
+			}
+			return bytes;
+		}
+
+		/**
+		 * A method to write the list of a word that may copy from another
+		 * list
+		 * 
+		 * @param v
+		 *            The number of the word
+		 * @param list
+		 *            The sorted adjacent words of the word
+		 * @param copied
+		 *            The sorted list copied from, or null
+		 * @param distance
+		 *            How many words before v the word of the copied list is
+		 */
+		private void writeList(int v, int[] list, int[] copied, int distance) {
+
+			if (copied == null) {
+				this.writeVarint(0);
+				this.writeGaps(v, list, 0, list.length);
+				return;
+			}
+
+			this.writeVarint(distance);
+
+			// one bit for every word of the copied list that is also in this
+			// list
+			this.ensureCapacity((copied.length + 7) / 8);
+			int j = 0;
+			for (int i = 0; i < copied.length; i++) {
+				while (j < list.length && list[j] < copied[i]) {
+					j++;
+				}
+				if (j < list.length && list[j] == copied[i]) {
+					this.encoded[this.encodedLength + i / 8] |= 1 << (i % 8);
+				}
+			}
+			this.encodedLength += (copied.length + 7) / 8;
+
+			int[] residuals = new int[list.length];
+			int count = 0;
+			for (int word : list) {
+				if (Arrays.binarySearch(copied, word) < 0) {
+					residuals[count++] = word;
+				}
+			}
+			this.writeGaps(v, residuals, 0, count);
+		}
+
+		/**
+		 * A method to write part of a sorted list as gaps
+		 * 
+		 * @param v
+		 *            The number of the word of the list
+		 * @param list
+		 *            The sorted words
+		 * @param from
+		 *            The position of the first word to write
+		 * @param to
+		 *            The position just after the last word to write
+		 */
+		private void writeGaps(int v, int[] list, int from, int to) {
+
+			for (int i = from; i < to; i++) {
+				this.writeVarint(i == from ? this.zigzag(list[i] - v) : list[i] - list[i - 1] - 1);
+			}
+		}
+
+		/**
+		 * A method to write a number that is not negative in as few bytes as
+		 * it needs, the lowest seven bits first, with the highest bit of
+		 * every byte but the last set
+		 * 
+		 * @param value
+		 *            The number to write
+		 */
+		private void writeVarint(int value) {
+
+			this.ensureCapacity(5);
+			while ((value & ~0x7f) != 0) {
+				this.encoded[this.encodedLength++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			this.encoded[this.encodedLength++] = (byte) value;
+		}
+
+		/**
+		 * A method to make room for more bytes while encoding
+		 * 
+		 * @param bytes
+		 *            The number of bytes to make room for
+		 */
+		private void ensureCapacity(int bytes) {
+
+			if (this.encodedLength + bytes > this.encoded.length) {
+				this.encoded = Arrays.copyOf(this.encoded,
+						Math.max(this.encodedLength + bytes, 2 * this.encoded.length));
+			}
+		}
+
+		/**
+		 * A method to count the bytes writeVarint uses for a number
+		 * 
+		 * @param value
+		 *            The number, not negative
+		 * @return The number of bytes
+		 */
+		private int varintBytes(int value) {
+
+			int bytes = 1;
+			while ((value & ~0x7f) != 0) {
+				value >>>= 7;
+				bytes++;
+			}
+			return bytes;
+		}
+
+		/**
+		 * A method to turn a number that may be negative into one that is not,
+		 * keeping small numbers small: 0, -1, 1, -2, ... become 0, 1, 2, 3, ...
+		 * 
+		 * @param value
+		 *            The number
+		 * @return The number that is not negative
+		 */
+		private int zigzag(int value) {
+			return (value << 1) ^ (value >> 31);
+		}
+
+		/**
+		 * A method to get the number of word pairs in this WordGraph
+		 * 
+		 * @return the number of word pairs
+		 */
+		@Override
+		public int edgeCount() {
+			return this.edges;
+		}
+
+		/**
+		 * A method to get the array loadAdjacent decodes the adjacent words
+		 * into, which for this WordGraph is the buffer
+		 * 
+		 * @param buffer
+		 *            An array getBufferSize() long to decode into
+		 * @return The buffer
+		 */
+		@Override
+		public int[] getTargets(int[] buffer) {
+			return buffer;
+		}
+
+		/**
+		 * A method to decode the adjacent words of a word into the buffer
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param buffer
+		 *            An array getBufferSize() long to decode into
+		 * @return 0, the position of the first adjacent word in the buffer
+		 */
+		@Override
+		public int loadAdjacent(int id, int[] buffer) {
+
+			this.decode(id, buffer, 0);
+			return 0;
+		}
+
+		/**
+		 * A method to decode the list of a word into part of an array. A list
+		 * that copies from another list first decodes that list just after
+		 * its own part of the array.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param into
+		 *            The array to decode into
+		 * @param at
+		 *            The position in into where the list starts
+		 * @return The number of adjacent words
+		 */
+		private int decode(int id, int[] into, int at) {
+
+			byte[] data = this.data;
+			int degree = this.endEdge(id) - this.firstEdge(id);
+			int position = this.positions[id >>> SAMPLE_SHIFT];
+			for (int word = id & -(1 << SAMPLE_SHIFT); word < id; word++) {
+				position = this.skip(word, position);
+			}
+
+			// an empty list is not written at all
+			if (!this.references || degree == 0) {
+				this.decodeGaps(data, position, id, degree, into, at);
+				return degree;
+			}
+
+			int distance = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = data[position++];
+				distance |= (b & 0x7f) << shift;
+				if (b >= 0) {
+					break;
+				}
+			}
+			if (distance == 0) {
+				this.decodeGaps(data, position, id, degree, into, at);
+				return degree;
+			}
+
+			// the copied list goes after this list, and the words stored as
+			// gaps go at the end of this list, so they can be merged in place
+			int copiedAt = at + this.maxDegree;
+			int copiedCount = this.decode(id - distance, into, copiedAt);
+			int mask = position;
+			position += (copiedCount + 7) / 8;
+
+			int kept = 0;
+			for (int i = 0; i < copiedCount; i++) {
+				if ((data[mask + i / 8] & (1 << (i % 8))) != 0) {
+					into[copiedAt + kept++] = into[copiedAt + i];
+				}
+			}
+			int residuals = degree - kept;
+			int residualAt = at + kept;
+			this.decodeGaps(data, position, id, residuals, into, residualAt);
+
+			int i = copiedAt;
+			int j = residualAt;
+			int write = at;
+			int copiedEnd = copiedAt + kept;
+			int residualEnd = residualAt + residuals;
+			while (i < copiedEnd && j < residualEnd) {
+				into[write++] = into[i] < into[j] ? into[i++] : into[j++];
+			}
+			while (i < copiedEnd) {
+				into[write++] = into[i++];
+			}
+			return degree;
+		}
+
+		/**
+		 * A method to find where the list after the list of a word starts,
+		 * without decoding the list
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param position
+		 *            The position of its list in the data
+		 * @return The position just after its list
+		 */
+		private int skip(int id, int position) {
+
+			byte[] data = this.data;
+			int degree = this.endEdge(id) - this.firstEdge(id);
+			if (!this.references || degree == 0) {
+				return this.skipVarints(data, position, degree);
+			}
+
+			int distance = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = data[position++];
+				distance |= (b & 0x7f) << shift;
+				if (b >= 0) {
+					break;
+				}
+			}
+			if (distance > 0) {
+				// the words copied are not stored as gaps
+				int copied = id - distance;
+				int maskBytes = (this.endEdge(copied) - this.firstEdge(copied) + 7) / 8;
+				for (int i = 0; i < maskBytes; i++) {
+					degree -= Integer.bitCount(data[position++] & 0xff);
+				}
+			}
+			return this.skipVarints(data, position, degree);
+		}
+
+		/**
+		 * A method to find where a number of numbers written by writeVarint
+		 * end, which is after that many bytes without their highest bit set
+		 * 
+		 * @param data
+		 *            The encoded lists
+		 * @param position
+		 *            The position of the first number
+		 * @param count
+		 *            The number of numbers
+		 * @return The position just after the last number
+		 */
+		private int skipVarints(byte[] data, int position, int count) {
+
+			while (count > 0) {
+				if (data[position++] >= 0) {
+					count--;
+				}
+			}
+			return position;
+		}
+
+		/**
+		 * A method to decode a list stored as gaps
+		 * 
+		 * @param data
+		 *            The encoded lists
+		 * @param position
+		 *            The position of the list in data
+		 * @param id
+		 *            The number of the word of the list
+		 * @param count
+		 *            The number of words in the list
+		 * @param into
+		 *            The array to decode into
+		 * @param at
+		 *            The position in into where the list starts
+		 */
+		private void decodeGaps(byte[] data, int position, int id, int count, int[] into, int at) {
+
+			int previous = 0;
+			for (int i = 0; i < count; i++) {
+				int value = 0;
+				for (int shift = 0;; shift += 7) {
+					byte b = data[position++];
+					value |= (b & 0x7f) << shift;
+					if (b >= 0) {
+						break;
+					}
+				}
+				previous = i == 0 ? id + ((value >>> 1) ^ -(value & 1)) : previous + value + 1;
+				into[at + i] = previous;
+			}
+		}
+
+		/**
+		 * A method to build the reverse index, with the words that have an
+		 * edge to every word also stored as gaps. The index is only built once.
+		 */
+		@Override
+		public void buildReverseIndex() {
+
+			if (this.reverseData != null) {
+				return;
+			}
+
+			int size = this.size();
+			int[] reverseOffsets = new int[size + 1];
+			int[] buffer = new int[this.getBufferSize()];
+
+			// count the edges into every word
+			for (int i = 0; i < size; i++) {
+				int start = this.loadAdjacent(i, buffer);
+				int stop = start + this.endEdge(i) - this.firstEdge(i);
+				int[] targets = this.getTargets(buffer);
+				for (int e = start; e < stop; e++) {
+					reverseOffsets[targets[e] + 1]++;
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				reverseOffsets[i + 1] += reverseOffsets[i];
+			}
+
+			// place every edge after the edges already placed for its target,
+			// which keeps the lists sorted
+			int[] sources = new int[this.edges];
+			int[] next = Arrays.copyOf(reverseOffsets, size);
+			for (int i = 0; i < size; i++) {
+				int start = this.loadAdjacent(i, buffer);
+				int stop = start + this.endEdge(i) - this.firstEdge(i);
+				int[] targets = this.getTargets(buffer);
+				for (int e = start; e < stop; e++) {
+					sources[next[targets[e]]++] = i;
+				}
+			}
+
+			int[] reversePositions = new int[(size >>> SAMPLE_SHIFT) + 1];
+			this.encoded = new byte[Math.max(16, this.edges)];
+			this.encodedLength = 0;
+			for (int i = 0; i < size; i++) {
+				if ((i & ((1 << SAMPLE_SHIFT) - 1)) == 0) {
+					reversePositions[i >>> SAMPLE_SHIFT] = this.encodedLength;
+				}
+				this.writeGaps(i, sources, reverseOffsets[i], reverseOffsets[i + 1]);
+			}
+
+			this.reverseOffsets = reverseOffsets;
+			this.reversePositions = reversePositions;
+			this.reverseData = Arrays.copyOf(this.encoded, this.encodedLength);
+			this.encoded = null;
+		}
+
+		/**
+		 * A method to get the position of the first word that has an edge to a
+		 * word, counting the words of all the lists before it. The reverse
+		 * index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The number of words in the lists before the word's list
+		 */
+		@Override
+		public int firstReverseEdge(int id) {
+			return this.reverseOffsets[id];
+		}
+
+		/**
+		 * A method to get the position just after the last word that has an
+		 * edge to a word, counting the words of all the lists before it. The
+		 * reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @return The number of words in the lists up to the word's list
+		 */
+		@Override
+		public int endReverseEdge(int id) {
+			return this.reverseOffsets[id + 1];
+		}
+
+		/**
+		 * A method to get the array loadReverseAdjacent decodes the words that
+		 * have an edge to a word into, which for this WordGraph is the buffer
+		 * 
+		 * @param buffer
+		 *            An array getBufferSize() long to decode into
+		 * @return The buffer
+		 */
+		@Override
+		public int[] getSources(int[] buffer) {
+			return buffer;
+		}
+
+		/**
+		 * A method to decode the words that have an edge to a word into an
+		 * array. The reverse index must have been built.
+		 * 
+		 * @param id
+		 *            The number of the word
+		 * @param into
+		 *            An array getBufferSize() long to decode into
+		 * @return 0, the position of the first word in the array
+		 */
+		@Override
+		public int loadReverseAdjacent(int id, int[] into) {
+
+			int position = this.reversePositions[id >>> SAMPLE_SHIFT];
+			for (int word = id & -(1 << SAMPLE_SHIFT); word < id; word++) {
+				position = this.skipVarints(this.reverseData, position,
+						this.reverseOffsets[word + 1] - this.reverseOffsets[word]);
+			}
+			int count = this.reverseOffsets[id + 1] - this.reverseOffsets[id];
+			this.decodeGaps(this.reverseData, position, id, count, into, 0);
+			return 0;
+		}
+
+		/**
+		 * A method to get how long the arrays given to loadAdjacent and
+		 * loadReverseAdjacent must be
+		 * 
+		 * @return The length of the arrays, with room for the lists a list
+		 *         copies through
+		 */
+		@Override
+		public int getBufferSize() {
+
+			// a list that copies from another needs room for the lists it
+			// copies through
+			int lists = this.references ? MAX_REFERENCE_CHAIN + 1 : 1;
+			return Math.max(1, Math.max(lists * this.maxDegree, this.maxInDegree));
+		}
+
+		/**
+		 * A method to get how many bytes the encoded adjacent words take, with
+		 * the saved position of every fourth list
+		 * 
+		 * @return The number of bytes
+		 */
+		@Override
+		public long getAdjacencyBytes() {
+
+			return this.data.length + 4L * this.positions.length;
+		}
+
+		/**
+		 * A method to decode all the lists into a new WordGraph that keeps
+		 * them in an array of ints
+		 * 
+		 * @return The new WordGraph
+		 */
+		@Override
+		public WordGraph uncompressed() {
+
+			int size = this.size();
+			int[] offsets = getOffsets(this);
+			int[] targets = new int[this.edges];
+			int[] buffer = new int[this.getBufferSize()];
+			String[] words = getWords(this);
+			for (int i = 0; i < size; i++) {
+				int degree = this.decode(i, buffer, 0);
+				System.arraycopy(buffer, 0, targets, offsets[i], degree);
+			}
+			return new WordGraph(words, offsets, targets);
+		}
+	}
+
+	/**
+	 * A class to expand one level of a search on several threads. The words
+	 * of the level are split in halves until the parts are small, every part
+	 * is expanded on its own and the new words of the parts are joined in
+	 * order. A bottom-up level is split over the numbers of all the words
+	 * instead of over the words of the level.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class FrontierTask extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		// The number of words of a level that are expanded without splitting
+		private static final int GRAIN = 1024;
+		// The number of words that are searched bottom-up without splitting
+		private static final int BOTTOM_UP_GRAIN = 16384;
+
+		// An instance variable to hold the graph being searched
+		private WordGraph graph;
+		// An instance variable to hold the words of the current level, null
+		// when the level is searched bottom-up
+		private int[] frontier;
+		// An instance variable to hold the position of the first word to
+		// expand
+		private int from;
+		// An instance variable to hold the position just after the last word
+		// to expand
+		private int to;
+		// An instance variable to hold the current level
+		private int level;
+		// An instance variable to hold the level of every word
+		private int[] levels;
+
+		/**
+		 * An argument constructor to create a new FrontierTask
+		 * 
+		 * @param graph
+		 *            The WordGraph being searched
+		 * @param frontier
+		 *            The words of the current level, or null to search the
+		 *            level bottom-up
+		 * @param from
+		 *            The position in frontier of the first word to expand, or
+		 *            the number of the first word when bottom-up
+		 * @param to
+		 *            The position in frontier just after the last word to
+		 *            expand, or the number just after the last word when
+		 *            bottom-up
+		 * @param level
+		 *            The current level
+		 * @param levels
+		 *            The level of every word, -1 for the words not reached yet
+		 */
+		public FrontierTask(WordGraph graph, int[] frontier, int from, int to, int level, int[] levels) {
+			this.graph = graph;
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.level = level;
+			this.levels = levels;
+		}
+
+		/**
+		 * A method to expand the words of this part of the level
+		 * 
+		 * @return The words reached for the first time by this part
+		 */
+		@Override
+		protected int[] compute() {
+
+			if (this.frontier == null && this.to - this.from <= BOTTOM_UP_GRAIN) {
+				return expandBottomUp(this.graph, this.from, this.to, this.level, this.levels);
+			}
+			if (this.frontier != null && this.to - this.from <= GRAIN) {
+				return expandFrontier(this.graph, this.frontier, this.from, this.to, this.level, this.levels, true);
+			}
+
+			int middle = (this.from + this.to) >>> 1;
+			FrontierTask left = new FrontierTask(this.graph, this.frontier, this.from, middle, this.level, this.levels);
+			FrontierTask right = new FrontierTask(this.graph, this.frontier, middle, this.to, this.level, this.levels);
+
+			left.fork();
+			int[] rightWords = right.compute();
+			int[] leftWords = left.join();
+
+			int[] words = Arrays.copyOf(leftWords, leftWords.length + rightWords.length);
+			System.arraycopy(rightWords, 0, words, leftWords.length, rightWords.length);
+			return words;
+		}
+	}
+
+	/**
+	 * A class to index the strongly connected components of a WordGraph. The
+	 * components are found with Tarjan's algorithm, run with an explicit stack
+	 * so long chains of words cannot overflow the call stack. The components
+	 * and the edges between them form a graph without cycles, on which the
+	 * number of words reachable from every component is counted.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class ComponentIndex {
+
+		// An instance variable to hold the component of every word
+		private int[] components;
+		// An instance variable to hold the number of words in every component
+		private int[] sizes;
+		// An instance variable to keep track of which components contain a
+		// cycle
+		private boolean[] cyclic;
+		// An instance variable to hold where the components reached by the
+		// edges leaving every component start in the dagTargets array
+		private int[] dagOffsets;
+		// An instance variable to hold the components reached by the edges
+		// leaving all the components, without repeats
+		private int[] dagTargets;
+		// An instance variable to hold the number of words reachable from
+		// every component, -1 until it is counted
+		private int[] reachableCounts;
+		// An instance variable to hold how long the index took to build
+		private long buildTime;
+
+		/**
+		 * An argument constructor that builds the index of a WordGraph
+		 * 
+		 * @param graph
+		 *            The WordGraph to index
+		 */
+		public ComponentIndex(WordGraph graph) {
+
+			long start = System.nanoTime();
+
+			int count = this.findComponents(graph);
+			this.buildComponentGraph(graph, count);
+			this.countChains();
+
+			this.buildTime = (System.nanoTime() - start) / 1000000;
+		}
+
+		/**
+		 * A method to find the strongly connected components of the graph.
+		 * Every component gets its number after all the components it can
+		 * reach, so the edges between components always go to lower numbers.
+		 * 
+		 * @param graph
+		 *            The WordGraph to search
+		 * @return The number of components
+		 */
+		private int findComponents(WordGraph graph) {
+
+			int size = graph.size();
+
+			this.components = new int[size];
+			Arrays.fill(this.components, -1);
+
+			int[] order = new int[size];
+			Arrays.fill(order, -1);
+			int[] low = new int[size];
+			int[] stack = new int[size];
+			int[] path = new int[size];
+			// the adjacent words of the words on the path, one list after
+			// another, so the search can go back to a word without loading
+			// its list again
+			int[] adjacent = new int[graph.getBufferSize()];
+			int[] pending = new int[16];
+			int pendingSize = 0;
+			// where the list of every word on the path starts in pending, and
+			// where its next adjacent word is
+			int[] listStart = new int[size];
+			int[] nextEdge = new int[size];
+			int stackSize = 0;
+			int pathSize = 0;
+			int visited = 0;
+			int count = 0;
+
+			for (int root = 0; root < size; root++) {
+
+				if (order[root] >= 0) {
+					continue;
+				}
+
+				order[root] = low[root] = visited++;
+				stack[stackSize++] = root;
+				path[pathSize] = root;
+				listStart[pathSize] = nextEdge[pathSize] = pendingSize;
+				pending = this.appendAdjacent(graph, root, adjacent, pending, pendingSize);
+				pendingSize += graph.endEdge(root) - graph.firstEdge(root);
+				pathSize++;
+
+				while (pathSize > 0) {
+
+					int top = pathSize - 1;
+					int word = path[top];
+
+					// the list of the word at the top of the path is the
+					// last one in pending
+					if (nextEdge[top] < pendingSize) {
+
+						int child = pending[nextEdge[top]++];
+
+						if (order[child] < 0) {
+							order[child] = low[child] = visited++;
+							stack[stackSize++] = child;
+							path[pathSize] = child;
+							listStart[pathSize] = nextEdge[pathSize] = pendingSize;
+							pending = this.appendAdjacent(graph, child, adjacent, pending, pendingSize);
+							pendingSize += graph.endEdge(child) - graph.firstEdge(child);
+							pathSize++;
+						} else if (this.components[child] < 0) {
+							// the child is still on the stack
+							low[word] = Math.min(low[word], order[child]);
+						}
+					} else {
+
+						pathSize--;
+						pendingSize = listStart[top];
+
+						if (low[word] == order[word]) {
+							int member;
+							do {
+								member = stack[--stackSize];
+								this.components[member] = count;
+							} while (member != word);
+							count++;
+						}
+						if (pathSize > 0) {
+							int parent = path[pathSize - 1];
+							low[parent] = Math.min(low[parent], low[word]);
+						}
+					}
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * A method to add the adjacent words of a word to the end of an array
+		 * 
+		 * @param graph
+		 *            The WordGraph being searched
+		 * @param word
+		 *            The number of the word
+		 * @param adjacent
+		 *            An array getBufferSize() long to load the adjacent words
+		 *            with
+		 * @param into
+		 *            The array to add the adjacent words to
+		 * @param at
+		 *            The position in into where they go
+		 * @return The array holding the adjacent words, into or a longer copy
+		 *         of it
+		 */
+		private int[] appendAdjacent(WordGraph graph, int word, int[] adjacent, int[] into, int at) {
+
+			int start = graph.loadAdjacent(word, adjacent);
+			int degree = graph.endEdge(word) - graph.firstEdge(word);
+			if (at + degree > into.length) {
+				into = Arrays.copyOf(into, Math.max(at + degree, 2 * into.length));
+			}
+			System.arraycopy(graph.getTargets(adjacent), start, into, at, degree);
+			return into;
+		}
+
+		/**
+		 * A method to build the graph of the components, with one edge from a
+		 * component to every other component that one of its words has an
+		 * edge to
+		 * 
+		 * @param graph
+		 *            The WordGraph whose components were found
+		 * @param count
+		 *            The number of components
+		 */
+		private void buildComponentGraph(WordGraph graph, int count) {
+
+			this.sizes = new int[count];
+			this.cyclic = new boolean[count];
+
+			// list the words of every component together
+			int[] memberOffsets = new int[count + 1];
+			for (int word = 0; word < graph.size(); word++) {
+				memberOffsets[this.components[word] + 1]++;
+			}
+			for (int c = 0; c < count; c++) {
+				this.sizes[c] = memberOffsets[c + 1];
+				this.cyclic[c] = this.sizes[c] > 1;
+				memberOffsets[c + 1] += memberOffsets[c];
+			}
+			int[] members = new int[graph.size()];
+			int[] next = Arrays.copyOf(memberOffsets, count);
+			for (int word = 0; word < graph.size(); word++) {
+				members[next[this.components[word]]++] = word;
+			}
+
+			int[] lastSeen = new int[count];
+			Arrays.fill(lastSeen, -1);
+			this.dagOffsets = new int[count + 1];
+			int[] targets = new int[16];
+			int[] adjacent = new int[graph.getBufferSize()];
+			int edges = 0;
+
+			for (int c = 0; c < count; c++) {
+				this.dagOffsets[c] = edges;
+				for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+					int word = members[m];
+					int start = graph.loadAdjacent(word, adjacent);
+					int stop = start + graph.endEdge(word) - graph.firstEdge(word);
+					int[] words = graph.getTargets(adjacent);
+					for (int e = start; e < stop; e++) {
+						int child = words[e];
+						int target = this.components[child];
+						if (child == word) {
+							this.cyclic[c] = true;
+						}
+						if (target != c && lastSeen[target] != c) {
+							lastSeen[target] = c;
+							if (edges == targets.length) {
+								targets = Arrays.copyOf(targets, 2 * edges);
+							}
+							targets[edges++] = target;
+						}
+					}
+				}
+			}
+			this.dagOffsets[count] = edges;
+			this.dagTargets = Arrays.copyOf(targets, edges);
+		}
+
+		/**
+		 * A method to count the reachable words of the components that lead to
+		 * at most one other component. Those counts need no search, since the
+		 * words of the component are added to the count of the one component
+		 * it leads to. The other counts are found the first time they are
+		 * needed.
+		 */
+		private void countChains() {
+
+			this.reachableCounts = new int[this.sizes.length];
+
+			// the components a component leads to always have lower numbers
+			for (int c = 0; c < this.sizes.length; c++) {
+				int degree = this.dagOffsets[c + 1] - this.dagOffsets[c];
+				if (degree == 0) {
+					this.reachableCounts[c] = this.sizes[c];
+				} else if (degree == 1 && this.reachableCounts[this.dagTargets[this.dagOffsets[c]]] >= 0) {
+					this.reachableCounts[c] = this.sizes[c] + this.reachableCounts[this.dagTargets[this.dagOffsets[c]]];
+				} else {
+					this.reachableCounts[c] = -1;
+				}
+			}
+		}
+
+		/**
+		 * A method to get the number of words reachable from a word, including
+		 * the word itself
+		 * 
+		 * @param word
+		 *            The number of the word
+		 * @return The number of words reachable from the word
+		 */
+		public int getReachableCount(int word) {
+
+			int component = this.components[word];
+
+			// two threads may both count a component, but they store the
+			// same number
+			int count = this.reachableCounts[component];
+			if (count < 0) {
+				count = this.countReachable(component);
+				this.reachableCounts[component] = count;
+			}
+			return count;
+		}
+
+		/**
+		 * A method to count the words reachable from a component by searching
+		 * the graph of the components
+		 * 
+		 * @param component
+		 *            The number of the component to search from
+		 * @return The number of words in all the components reachable from
+		 *         the component
+		 */
+		private int countReachable(int component) {
+
+			boolean[] reached = new boolean[this.sizes.length];
+			int[] queue = new int[this.sizes.length];
+			int head = 0;
+			int tail = 0;
+			int count = 0;
+
+			reached[component] = true;
+			queue[tail++] = component;
+
+			while (head < tail) {
+				int c = queue[head++];
+				count += this.sizes[c];
+				for (int e = this.dagOffsets[c]; e < this.dagOffsets[c + 1]; e++) {
+					int target = this.dagTargets[e];
+					if (!reached[target]) {
+						reached[target] = true;
+						queue[tail++] = target;
+					}
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * A method to check whether a word can be on a cycle
+		 * 
+		 * @param word
+		 *            The number of the word
+		 * @return True if the component of the word has more than one word or
+		 *         a word with a pair with itself, false otherwise
+		 */
+		public boolean isOnCycle(int word) {
+			return this.cyclic[this.components[word]];
+		}
+
+		/**
+		 * A method to get the number of components
+		 * 
+		 * @return the number of components
+		 */
+		public int size() {
+			return this.sizes.length;
+		}
+
+		/**
+		 * A method to get how long the index took to build
+		 * 
+		 * @return the build time in milliseconds
+		 */
+		public long getBuildTime() {
+			return this.buildTime;
+		}
+
+		/**
+		 * A method to get roughly how much memory the index uses
+		 * 
+		 * @return the size of the arrays of the index in bytes
+		 */
+		public long getMemory() {
+			return 4L * (this.components.length + 2L * this.sizes.length + this.dagOffsets.length
+					+ this.dagTargets.length) + this.cyclic.length;
+		}
+	}
+
+	/**
+	 * A method to get the most landmarks whose distances to and from every
+	 * word of a graph fit in one array
+	 * 
+	 * @param size
+	 *            The number of words of the graph
+	 * @return The number of landmarks
+	 */
+	private static int getMaxLandmarks(int size) {
+
+		// every landmark takes two distances for every word
+		return (int) Math.min(Integer.MAX_VALUE, MAX_ARRAY_LENGTH / (2L * Math.max(size, 1)));
+	}
+
+	/**
+	 * A class to hold the distances from a few landmark words to every word
+	 * and from every word to the landmarks. Since the distance from a word v
+	 * to a word t is at least d(L, t) - d(L, v) and at least d(v, L) - d(t,
+	 * L) for every landmark L, and at most d(v, L) + d(L, t), the distances
+	 * to the landmarks bound the length of any chain without a search. The
+	 * first landmark is the word with the most pairs and every next one is
+	 * the word farthest from the landmarks already chosen, so the landmarks
+	 * lie around the edges of the graph where the bounds are tightest.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class LandmarkIndex {
+
+		// An instance variable to hold the number of landmarks
+		private int count;
+		// An instance variable to hold the landmark words
+		private int[] landmarks;
+		// An instance variable to hold the distances from every landmark to
+		// every word and from every word to every landmark, -1 if there is
+		// no chain. The distance from landmark l to word v is at
+		// distances[2 * (v * count + l)] and the distance from word v to
+		// landmark l is right after it, so all the distances of one word are
+		// next to each other
+		private int[] distances;
+		// An instance variable to hold how long the index took to build
+		private long buildTime;
+
+		/**
+		 * An argument constructor that chooses the landmarks and searches
+		 * forward and backward from each of them
+		 * 
+		 * @param graph
+		 *            The WordGraph to index
+		 * @param count
+		 *            The number of landmarks, cut down to the number of words
+		 *            and to the most whose distances fit in one array, since
+		 *            the graph may have grown since the index was asked for
+		 */
+		public LandmarkIndex(WordGraph graph, int count) {
+
+			long start = System.nanoTime();
+
+			int size = graph.size();
+			graph.buildReverseIndex();
+
+			this.count = Math.min(Math.min(count, size), getMaxLandmarks(size));
+			this.landmarks = new int[this.count];
+			this.distances = new int[(int) (2L * size * this.count)];
+
+			// the distance from the nearest landmark to every word, -1 while
+			// no landmark reaches it
+			int[] nearest = new int[size];
+			Arrays.fill(nearest, -1);
+			int[] levels = new int[size];
+			int[] queue = new int[size];
+
+			for (int l = 0; l < this.count; l++) {
+
+				int landmark = l == 0 ? this.getBusiestWord(graph) : this.getFarthestWord(graph, nearest);
+				this.landmarks[l] = landmark;
+
+				this.search(graph, landmark, true, levels, queue);
+				for (int v = 0; v < size; v++) {
+					this.distances[2 * (v * this.count + l)] = levels[v];
+					if (levels[v] >= 0 && (nearest[v] < 0 || levels[v] < nearest[v])) {
+						nearest[v] = levels[v];
+					}
+				}
+				// a landmark is never chosen twice
+				nearest[landmark] = 0;
+
+				this.search(graph, landmark, false, levels, queue);
+				for (int v = 0; v < size; v++) {
+					this.distances[2 * (v * this.count + l) + 1] = levels[v];
+				}
+			}
+
+			this.buildTime = (System.nanoTime() - start) / 1000000;
+		}
+
+		/**
+		 * A method to find the word with the most pairs leading to and from
+		 * it
+		 * 
+		 * @param graph
+		 *            The WordGraph to look through
+		 * @return The number of the word
+		 */
+		private int getBusiestWord(WordGraph graph) {
+
+			int busiest = 0;
+			int most = -1;
+			for (int v = 0; v < graph.size(); v++) {
+				int degree = graph.endEdge(v) - graph.firstEdge(v) + graph.endReverseEdge(v)
+						- graph.firstReverseEdge(v);
+				if (degree > most) {
+					most = degree;
+					busiest = v;
+				}
+			}
+			return busiest;
+		}
+
+		/**
+		 * A method to find the word farthest from the landmarks chosen so far.
+		 * A word no landmark reaches is the farthest of all, and among those
+		 * the one with the most pairs leaving it is chosen.
+		 * 
+		 * @param graph
+		 *            The WordGraph to look through
+		 * @param nearest
+		 *            The distance from the nearest landmark to every word, -1
+		 *            if no landmark reaches it
+		 * @return The number of the word
+		 */
+		private int getFarthestWord(WordGraph graph, int[] nearest) {
+
+			int farthest = 0;
+			long best = -1;
+			for (int v = 0; v < graph.size(); v++) {
+				// unreached words first, then by distance, then by pairs
+				long distance = nearest[v] < 0 ? Integer.MAX_VALUE : nearest[v];
+				long score = (distance << 31) + graph.endEdge(v) - graph.firstEdge(v);
+				if (score > best) {
+					best = score;
+					farthest = v;
+				}
+			}
+			return farthest;
+		}
+
+		/**
+		 * A method to find the distance from a landmark to every word, or from
+		 * every word to a landmark
+		 * 
+		 * @param graph
+		 *            The WordGraph to search
+		 * @param landmark
+		 *            The number of the landmark
+		 * @param forward
+		 *            true to follow the pairs forward from the landmark, false
+		 *            to follow them backward
+		 * @param levels
+		 *            The array to fill with the distances, -1 for the words
+		 *            not reached
+		 * @param queue
+		 *            An array as long as levels to use as the queue
+		 */
+		private void search(WordGraph graph, int landmark, boolean forward, int[] levels, int[] queue) {
+
+			Arrays.fill(levels, -1);
+			int[] adjacent = new int[graph.getBufferSize()];
+			int head = 0;
+			int tail = 0;
+
+			levels[landmark] = 0;
+			queue[tail++] = landmark;
+
+			while (head < tail) {
+				int word = queue[head++];
+				int start;
+				int stop;
+				int[] words;
+				if (forward) {
+					start = graph.loadAdjacent(word, adjacent);
+					stop = start + graph.endEdge(word) - graph.firstEdge(word);
+					words = graph.getTargets(adjacent);
+				} else {
+					start = graph.loadReverseAdjacent(word, adjacent);
+					stop = start + graph.endReverseEdge(word) - graph.firstReverseEdge(word);
+					words = graph.getSources(adjacent);
+				}
+				for (int e = start; e < stop; e++) {
+					int next = words[e];
+					if (levels[next] < 0) {
+						levels[next] = levels[word] + 1;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+
+		/**
+		 * A method to get a lower bound on the length of the shortest chain
+		 * between two different words
+		 * 
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @return A number no larger than the length of the shortest chain,
+		 *         Integer.MAX_VALUE if a landmark proves there is no chain
+		 */
+		public int lowerBound(int source, int target) {
+
+			int bound = 1;
+			for (int l = 0; l < this.count; l++) {
+				bound = Math.max(bound, this.getBound(source, target, l));
+			}
+			return bound;
+		}
+
+		/**
+		 * A method to get a lower bound on the length of the shortest chain
+		 * between two different words from some of the landmarks only
+		 * 
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @param active
+		 *            The landmarks to use
+		 * @return A number no larger than the length of the shortest chain,
+		 *         Integer.MAX_VALUE if one of the landmarks proves there is no
+		 *         chain
+		 */
+		public int lowerBound(int source, int target, int[] active) {
+
+			return this.lowerBound(source, active, this.getTargetDistances(target, active));
+		}
+
+		/**
+		 * A method to copy the distances between some landmarks and the word
+		 * where a chain ends, so a search towards that word does not look
+		 * them up again for every word
+		 * 
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @param active
+		 *            The landmarks to copy the distances of
+		 * @return The distance from and to every landmark in active, in pairs
+		 */
+		public int[] getTargetDistances(int target, int[] active) {
+
+			int[] targetDistances = new int[2 * active.length];
+			for (int i = 0; i < active.length; i++) {
+				targetDistances[2 * i] = this.distances[2 * (target * this.count + active[i])];
+				targetDistances[2 * i + 1] = this.distances[2 * (target * this.count + active[i]) + 1];
+			}
+			return targetDistances;
+		}
+
+		/**
+		 * A method to get a lower bound on the length of the shortest chain
+		 * from a word to the word whose distances were copied by
+		 * getTargetDistances
+		 * 
+		 * @param source
+		 *            The number of the word where the chain starts, which is
+		 *            not the word where it ends
+		 * @param active
+		 *            The landmarks to use
+		 * @param targetDistances
+		 *            The distances between the landmarks and the word where
+		 *            the chain ends
+		 * @return A number no larger than the length of the shortest chain,
+		 *         Integer.MAX_VALUE if one of the landmarks proves there is no
+		 *         chain
+		 */
+		public int lowerBound(int source, int[] active, int[] targetDistances) {
+
+			int bound = 1;
+			int s = 2 * source * this.count;
+
+			for (int i = 0; i < active.length; i++) {
+
+				int fromS = this.distances[s + 2 * active[i]];
+				int toS = this.distances[s + 2 * active[i] + 1];
+				int fromT = targetDistances[2 * i];
+				int toT = targetDistances[2 * i + 1];
+
+				if ((fromS >= 0 && fromT < 0) || (toT >= 0 && toS < 0)) {
+					return Integer.MAX_VALUE;
+				}
+				if (fromS >= 0 && fromT - fromS > bound) {
+					bound = fromT - fromS;
+				}
+				if (toT >= 0 && toS - toT > bound) {
+					bound = toS - toT;
+				}
+			}
+			return bound;
+		}
+
+		/**
+		 * A method to choose the landmarks that give the largest lower bounds
+		 * for a query. Searching with only these few landmarks costs much
+		 * less per word than with all of them, and the bounds near the two
+		 * words of the query are nearly as good.
+		 * 
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @param max
+		 *            The largest number of landmarks to choose
+		 * @return The chosen landmarks, best first
+		 */
+		public int[] getActiveLandmarks(int source, int target, int max) {
+
+			int[] bounds = new int[this.count];
+			Integer[] order = new Integer[this.count];
+			for (int l = 0; l < this.count; l++) {
+				bounds[l] = this.getBound(source, target, l);
+				order[l] = l;
+			}
+			Arrays.sort(order, (a, b) -> Integer.compare(bounds[b], bounds[a]));
+
+			int[] active = new int[Math.min(max, this.count)];
+			for (int i = 0; i < active.length; i++) {
+				active[i] = order[i];
+			}
+			return active;
+		}
+
+		/**
+		 * A method to get the lower bound one landmark gives on the length of
+		 * the shortest chain between two words
+		 * 
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @param landmark
+		 *            The index of the landmark
+		 * @return A number no larger than the length of the shortest chain,
+		 *         Integer.MAX_VALUE if the landmark proves there is no chain
+		 */
+		private int getBound(int source, int target, int landmark) {
+
+			int s = 2 * (source * this.count + landmark);
+			int t = 2 * (target * this.count + landmark);
+			int fromS = this.distances[s];
+			int toS = this.distances[s + 1];
+			int fromT = this.distances[t];
+			int toT = this.distances[t + 1];
+
+			// the landmark reaches source but not target, or target reaches
+			// the landmark but source does not
+			if ((fromS >= 0 && fromT < 0) || (toT >= 0 && toS < 0)) {
+				return Integer.MAX_VALUE;
+			}
+			int bound = 0;
+			if (fromS >= 0) {
+				bound = fromT - fromS;
+			}
+			if (toT >= 0 && toS - toT > bound) {
+				bound = toS - toT;
+			}
+			return bound;
+		}
+
+		/**
+		 * A method to get an upper bound on the length of the shortest chain
+		 * between two different words, from the chains through the landmarks
+		 * 
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @return A number no smaller than the length of the shortest chain,
+		 *         Integer.MAX_VALUE if no landmark lies on a chain from
+		 *         source to target
+		 */
+		public int upperBound(int source, int target) {
+
+			int bound = Integer.MAX_VALUE;
+			int s = 2 * source * this.count;
+			int t = 2 * target * this.count;
+
+			for (int l = 0; l < this.count; l++) {
+				int toS = this.distances[s + 2 * l + 1];
+				int fromT = this.distances[t + 2 * l];
+				if (toS >= 0 && fromT >= 0 && toS + fromT < bound) {
+					bound = toS + fromT;
+				}
+			}
+			return bound;
+		}
+
+		/**
+		 * A method to get how long the index took to build
+		 * 
+		 * @return The build time in milliseconds
+		 */
+		public long getBuildTime() {
+			return this.buildTime;
+		}
+
+		/**
+		 * A method to get roughly how much memory the index uses
+		 * 
+		 * @return The size of the arrays of the index in bytes
+		 */
+		public long getMemory() {
+			return 4L * (this.landmarks.length + this.distances.length);
+		}
+	}
+
+	/**
+	 * A class to hold the results of one search from a word to every word
+	 * that can be reached from it: the level at which every word is first
+	 * reached, the number of words first reached at every level and the
+	 * length of the shortest cycle back to the word. Many queries that start
+	 * from the same word can then be answered without searching again. When
+	 * a word pair is added, the table is brought up to date by searching
+	 * only from the second word of the pair.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class DistanceTable {
+
+		// An instance variable to hold the number of the word the search
+		// starts from, -1 if the word is not in the graph
+		private int source;
+		// An instance variable to hold the level of every word, -1 for the
+		// words that are not reached
+		private int[] levels;
+		// An instance variable to hold the number of words first reached at
+		// every level
+		private int[] levelCounts;
+		// An instance variable to hold the number of words reached at or
+		// before every level, null until it is needed again after a change
+		private int[] reachedByLevel;
+		// An instance variable to hold the length of the shortest cycle back
+		// to the source
+		private int cycleLength = Integer.MAX_VALUE;
+
+		/**
+		 * An argument constructor that searches the graph from a word
+		 * 
+		 * @param graph
+		 *            The WordGraph to search
+		 * @param word
+		 *            The word from which the search starts
+		 */
+		public DistanceTable(WordGraph graph, String word) {
+
+			this.source = graph.getId(word);
+			this.levels = new int[graph.size()];
+			Arrays.fill(this.levels, -1);
+			this.levelCounts = new int[1];
+
+			if (this.source < 0) {
+				return;
+			}
+
+			int[] queue = new int[graph.size()];
+			int[] adjacent = new int[graph.getBufferSize()];
+			int head = 0;
+			int tail = 0;
+
+			this.setLevel(this.source, 0);
+			queue[tail++] = this.source;
+
+			while (head < tail) {
+
+				int current = queue[head++];
+
+				int start = graph.loadAdjacent(current, adjacent);
+				int stop = start + graph.endEdge(current) - graph.firstEdge(current);
+				int[] targets = graph.getTargets(adjacent);
+				for (int e = start; e < stop; e++) {
+					int child = targets[e];
+					if (child == this.source && this.cycleLength == Integer.MAX_VALUE) {
+						this.cycleLength = this.levels[current] + 1;
+					}
+					if (this.levels[child] < 0) {
+						this.setLevel(child, this.levels[current] + 1);
+						queue[tail++] = child;
+					}
+				}
+			}
+		}
+
+		/**
+		 * A method to set the level of a word, keeping the number of words at
+		 * every level up to date
+		 * 
+		 * @param word
+		 *            The number of the word
+		 * @param level
+		 *            The new level of the word
+		 */
+		private void setLevel(int word, int level) {
+
+			if (this.levels[word] >= 0) {
+				this.levelCounts[this.levels[word]]--;
+			}
+			if (level >= this.levelCounts.length) {
+				this.levelCounts = Arrays.copyOf(this.levelCounts, Math.max(level + 1, 2 * this.levelCounts.length));
+			}
+			this.levels[word] = level;
+			this.levelCounts[level]++;
+			this.reachedByLevel = null;
+		}
+
+		/**
+		 * A method to make room for a word that was added to the graph after
+		 * this table was made. The new word is not reached until a pair leads
+		 * to it.
+		 * 
+		 * @param word
+		 *            The number of the new word
+		 */
+		public void addWord(int word) {
+
+			if (word >= this.levels.length) {
+				int size = this.levels.length;
+				this.levels = Arrays.copyOf(this.levels, Math.max(word + 1, 2 * size));
+				Arrays.fill(this.levels, size, this.levels.length, -1);
+			}
+		}
+
+		/**
+		 * A method to bring this table up to date after a word pair was added
+		 * to the graph. Nothing changes unless the pair gives its second word
+		 * a lower level, and then only the words whose level goes down are
+		 * searched again, starting from the second word.
+		 * 
+		 * @param from
+		 *            The number of the first word of the new pair
+		 * @param to
+		 *            The number of the second word of the new pair
+		 */
+		public void addEdge(int from, int to) {
+
+			if (this.source < 0 || this.levels[from] < 0) {
+				return;
+			}
+			if (to == this.source) {
+				this.cycleLength = Math.min(this.cycleLength, this.levels[from] + 1);
+			}
+			if (this.levels[to] >= 0 && this.levels[to] <= this.levels[from] + 1) {
+				return;
+			}
+
+			LinkedList<Integer> queue = new LinkedList<>();
+			this.setLevel(to, this.levels[from] + 1);
+			queue.add(to);
+
+			// the queue stays in level order, so every word gets its lowest
+			// level the first time it is lowered
+			while (!queue.isEmpty()) {
+
+				int current = queue.poll();
+				int[] children = WordPairs.this.getAdjacentIds(current);
+
+				for (int i = 0; i < children.length; i++) {
+					int child = children[i];
+					if (child == this.source) {
+						this.cycleLength = Math.min(this.cycleLength, this.levels[current] + 1);
+					}
+					if (this.levels[child] < 0 || this.levels[child] > this.levels[current] + 1) {
+						this.setLevel(child, this.levels[current] + 1);
+						queue.add(child);
+					}
+				}
+			}
+		}
+
+		/**
+		 * A method to get the number of word pairs in the shortest chain from
+		 * the source to a word
+		 * 
+		 * @param target
+		 *            The number of the word where the chain ends, -1 if the
+		 *            word is not in the graph
+		 * @return The number of word pairs in the shortest chain, the length
+		 *         of the shortest cycle if the word is the source, or
+		 *         Integer.MAX_VALUE if there is no chain
+		 */
+		public int chainLength(int target) {
+
+			if (target < 0 || this.source < 0) {
+				return Integer.MAX_VALUE;
+			}
+			if (target == this.source) {
+				return this.cycleLength;
+			}
+			return this.levels[target] < 0 ? Integer.MAX_VALUE : this.levels[target];
+		}
+
+		/**
+		 * A method to get the number of words reached from the source within a
+		 * maximum length
+		 * 
+		 * @param maxLength
+		 *            The maximum length of the chains, 0 if the length is not
+		 *            to be limited
+		 * @return The number of words reached within maxLength
+		 */
+		public int reachedWithin(int maxLength) {
+
+			if (maxLength < 0) {
+				return 0;
+			}
+			if (this.reachedByLevel == null) {
+				this.reachedByLevel = new int[this.levelCounts.length];
+				this.reachedByLevel[0] = this.levelCounts[0];
+				for (int i = 1; i < this.levelCounts.length; i++) {
+					this.reachedByLevel[i] = this.reachedByLevel[i - 1] + this.levelCounts[i];
+				}
+			}
+			int deepest = this.reachedByLevel.length - 1;
+			if (maxLength == 0 || maxLength > deepest) {
+				return this.reachedByLevel[deepest];
+			}
+			return this.reachedByLevel[maxLength];
+		}
+	}
+
+	/**
+	 * A class to hold what one query did: the words it expanded, the edges of
+	 * those words, the largest number of words waiting to be expanded at once,
+	 * the entries of the search arrays it allocated and its wall time. A query
+	 * answered from the query cache, a tracked word or the component index
+	 * expands no words.
+	 * 
+	 * @author Sanjeeb Sangraula
+	 *
+	 */
+	class QueryStats {
+
+		// An instance variable to hold the name of the query method
+		private String query;
+		// An instance variable to count the words expanded
+		private long verticesExpanded = 0;
+		// An instance variable to count the edges leaving the words expanded
+		private long edgesScanned = 0;
+		// An instance variable to hold the largest number of words waiting
+		// to be expanded at once
+		private long peakQueue = 0;
+		// An instance variable to count the int entries of the search arrays
+		// allocated
+		private long intsAllocated = 0;
+		// An instance variable to hold when the query started, from
+		// System.nanoTime()
+		private long start;
+		// An instance variable to hold the wall time of the query in
+		// nanoseconds
+		private long wallTime = 0;
+
+		/**
+		 * An argument constructor to start measuring a query
+		 * 
+		 * @param query
+		 *            The name of the query method
+		 */
+		public QueryStats(String query) {
+
+			this.query = query;
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * A method to count one expanded word
+		 * 
+		 * @param edges
+		 *            The number of edges leaving the word
+		 * @param queued
+		 *            The number of words waiting to be expanded after it
+		 */
+		public void expand(int edges, int queued) {
+
+			this.verticesExpanded++;
+			this.edgesScanned += edges;
+			if (queued > this.peakQueue) {
+				this.peakQueue = queued;
+			}
+		}
+
+		/**
+		 * A method to count a whole level of expanded words
+		 * 
+		 * @param words
+		 *            The number of words in the level
+		 * @param edges
+		 *            The number of edges leaving the words of the level
+		 */
+		public void expandLevel(int words, long edges) {
+
+			this.verticesExpanded += words;
+			this.edgesScanned += edges;
+			if (words > this.peakQueue) {
+				this.peakQueue = words;
+			}
+		}
+
+		/**
+		 * A method to count a search that filled in a DistanceTable, which
+		 * expands every word it reaches
+		 * 
+		 * @param graph
+		 *            The WordGraph that was searched
+		 * @param table
+		 *            The DistanceTable filled in by the search
+		 */
+		public void addTable(WordGraph graph, DistanceTable table) {
+
+			this.allocate(2L * graph.size() + table.levelCounts.length);
+			for (int word = 0; word < table.levels.length; word++) {
+				if (table.levels[word] >= 0) {
+					this.verticesExpanded++;
+					this.edgesScanned += graph.endEdge(word) - graph.firstEdge(word);
+				}
+			}
+			for (int count : table.levelCounts) {
+				if (count > this.peakQueue) {
+					this.peakQueue = count;
+				}
+			}
+		}
+
+		/**
+		 * A method to count allocated entries of search arrays
+		 * 
+		 * @param ints
+		 *            The number of int or boolean entries allocated
+		 */
+		public void allocate(long ints) {
+
+			this.intsAllocated += ints;
+		}
+
+		/**
+		 * A method to stop the clock of the query
+		 */
+		public void finish() {
+
+			this.wallTime = System.nanoTime() - this.start;
+		}
 
-		String first = null, second = null;
+		/**
+		 * A method to get the name of the query method
+		 * 
+		 * @return The name of the query
+		 */
+		public String getQuery() {
+			return this.query;
+		}
 
-		if (sc.hasNext()) {
-			first = sc.next().trim();
+		/**
+		 * A method to get the number of words expanded
+		 * 
+		 * @return The number of words expanded
+		 */
+		public long getVerticesExpanded() {
+			return this.verticesExpanded;
 		}
-		if (sc.hasNext()) {
-			second = sc.next().trim();
+
+		/**
+		 * A method to get the number of edges leaving the words expanded
+		 * 
+		 * @return The number of edges scanned
+		 */
+		public long getEdgesScanned() {
+			return this.edgesScanned;
 		}
 
-		if (!this.graph.validVertex(first)) {
-			this.graph.addVertex(first);
+		/**
+		 * A method to get the largest number of words waiting to be expanded
+		 * at once
+		 * 
+		 * @return The peak size of the queue or level
+		 */
+		public long getPeakQueue() {
+			return this.peakQueue;
 		}
 
-		if (!this.graph.validVertex(second)) {
-			this.graph.addVertex(second);
+		/**
+		 * A method to get the number of entries of the search arrays
+		 * allocated
+		 * 
+		 * @return The number of entries allocated
+		 */
+		public long getIntsAllocated() {
+			return this.intsAllocated;
 		}
-		this.graph.addEdge(first, second);
-	}
 
-	/**
-	 * A method to return the shortest sequence of word pairs that begins with
-	 * first and ends with last, using the format below [first word1, word1
-	 * word2, word2 ... , wordn last]
-	 * 
-	 * @param first
-	 *            the word or the vertex from which the chain begins
-	 * @param last
-	 *            the word or vertex where the chain ends
-	 * @return a string containing the shortest sequence of word pairs that
-	 *         begins with first and ends with last
-	 */
-	public String wordChain(String first, String last) {
+		/**
+		 * A method to get the wall time of the query
+		 * 
+		 * @return The wall time in nanoseconds
+		 */
+		public long getWallTime() {
+			return this.wallTime;
+		}
 
-		return this.wordChainFinder.wordChain(first, last);
+		/**
+		 * A method to describe the measurements on one line
+		 * 
+		 * @return A String with all the measurements
+		 */
+		@Override
+		public String toString() {
+			return this.query + ": expanded " + this.verticesExpanded + ", edges " + this.edgesScanned + ", peak queue "
+					+ this.peakQueue + ", allocated " + this.intsAllocated + ", wall time " + this.wallTime + " ns";
+		}
 	}
 
 	/**
-	 * A method to return the number of word pairs in the shortest chain that
-	 * begins with first and ends with last. Return Integer.MAX_VALUE if none
-	 * exists.
+	 * A class to count the wall times of many queries in buckets that double
+	 * in size, so any number of queries is kept in a fixed, small array. The
+	 * percentiles are the upper ends of their buckets, so they are at most
+	 * twice the true value.
 	 * 
-	 * @param first
-	 *            The word from which the shortest chain starts
-	 * @param last
-	 *            The word where the shortest chain is to end
-	 * @return a integer representing the number of word pairs that begin with
-	 *         first and ends with last
+	 * @author Sanjeeb Sangraula
+	 *
 	 */
-	public int chainLength(String first, String last) {
+	class LatencyHistogram {
 
-		return this.wordChainFinder.chainLength(first, last);
-	}
+		// The number of buckets, enough for any long number of nanoseconds
+		private static final int BUCKETS = 64;
 
-	/**
-	 * A method to return the number of distinct words that are part of all
-	 * chains of maxLength that begin with word.
-	 * 
-	 * @param word
-	 *            The word or vertex from which the chains start.
-	 * @param maxLength
-	 *            The maximum length of the chains that begin with word.
-	 * @return The total number of distinct words that are part of all chains of
-	 *         maxlength.
-	 */
-	public int reachableFrom(String word, int maxLength) {
+		// An instance variable to count the times in every bucket. Bucket b
+		// holds the times from 2^(b - 1) up to 2^b - 1 nanoseconds
+		private long[] counts = new long[BUCKETS];
+		// An instance variable to count all the times
+		private long count = 0;
+		// An instance variable to hold the sum of all the times
+		private long total = 0;
+		// An instance variable to hold the largest time
+		private long max = 0;
 
-		return this.reachableWordsFinder.reachableFrom(word, maxLength);
-	}
+		/**
+		 * A method to add a wall time
+		 * 
+		 * @param nanos
+		 *            The wall time in nanoseconds
+		 */
+		public void record(long nanos) {
 
-	/**
-	 * A method to return the number of distinct words that are part of all
-	 * chains that begin with word. Assume that a word is always reachable from
-	 * itself
-	 * 
-	 * @param word
-	 *            The word or vertex from which the chains start
-	 * @return The number of distinct words that are part of all chains that
-	 *         begin with word
-	 */
-	public int reachableFrom(String word) {
+			this.counts[BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0))]++;
+			this.count++;
+			this.total += nanos;
+			if (nanos > this.max) {
+				this.max = nanos;
+			}
+		}
 
-		return this.reachableWordsFinder.reachableFrom(word);
-	}
+		/**
+		 * A method to get the number of times added
+		 * 
+		 * @return The number of times
+		 */
+		public long getCount() {
+			return this.count;
+		}
 
-	/**
-	 * A method to return a String containing the distinct words that are part
-	 * all chains of maxLength that begin with word. The reachable words should
-	 * be grouped by level, using the format [word] [word1, word2] [word3,
-	 * word4, word5] ... ... [........., wordn]
-	 * 
-	 * @param word
-	 *            The string from which the word chains begin
-	 * @param maxLength
-	 *            The maximum length of the chains of words that begin with word
-	 * @return a string containing the distinct words that are parts of all
-	 *         chains of maxLength that begin with word.
-	 */
-	public String reachableWords(String word, int maxLength) {
+		/**
+		 * A method to get the mean of the times
+		 * 
+		 * @return The mean in nanoseconds, 0 if there are no times
+		 */
+		public double getMean() {
+			return this.count == 0 ? 0 : (double) this.total / this.count;
+		}
 
-		return this.reachableWordsFinder.reachableWords(word, maxLength);
-	}
+		/**
+		 * A method to get the largest time
+		 * 
+		 * @return The largest time in nanoseconds
+		 */
+		public long getMax() {
+			return this.max;
+		}
 
-	/**
-	 * A method to returns the shortest sequence of word pairs that begin and
-	 * ends with word, using the format below (returns [] if there is no such
-	 * sequence).
-	 * 
-	 * @param word
-	 *            The word or vertex from where the cyckle starts
-	 * @return A string containing the sequence of words that begin and end with
-	 *         word
-	 */
-	public String cycle(String word) {
+		/**
+		 * A method to get a percentile of the times
+		 * 
+		 * @param percentile
+		 *            The percentile, from 0 to 100
+		 * @return The upper end of the bucket holding the percentile in
+		 *         nanoseconds, 0 if there are no times
+		 */
+		public long getPercentile(double percentile) {
+
+			long rank = (long) Math.ceil(percentile / 100 * this.count);
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				seen += this.counts[b];
+				if (seen >= rank && seen > 0) {
+					return Math.min(b == 0 ? 0 : (1L << b) - 1, this.max);
+				}
+			}
+			return this.max;
+		}
+
+		/**
+		 * A method to describe the histogram, one line per bucket that is not
+		 * empty
+		 * 
+		 * @return A String with the summary and the buckets
+		 */
+		@Override
+		public String toString() {
 
-		return this.wordChainFinder.wordChain(word, word);
+			StringBuilder s = new StringBuilder();
+			s.append("count ").append(this.count).append(", mean ").append((long) this.getMean()).append(" ns, p50 ")
+					.append(this.getPercentile(50)).append(" ns, p99 ").append(this.getPercentile(99))
+					.append(" ns, max ").append(this.max).append(" ns");
+			for (int b = 0; b < BUCKETS; b++) {
+				if (this.counts[b] > 0) {
+					s.append("\n< ").append(b == 0 ? 1 : 1L << b).append(" ns: ").append(this.counts[b]);
+				}
+			}
+			return s.toString();
+		}
 	}
 
 	/**
@@ -206,21 +5512,92 @@ public class WordPairs {
 	 */
 	class ReachableWordsFinder {
 
+		// The number of words a level needs before it is shared between
+		// threads
+		private static final int PARALLEL_FRONTIER = 4096;
+		// A level is searched bottom-up once the edges leaving it are more
+		// than this part of the edges leaving the words not reached yet
+		private static final int TO_BOTTOM_UP = 14;
+		// A level is searched top-down again once it holds less than this
+		// part of all the words
+		private static final int TO_TOP_DOWN = 24;
+
 		// An instance variable to hold the graph
-		private DiGraph graph;
+		private WordGraph graph;
+		// An instance variable to hold the threads that share large levels,
+		// null to search on a single thread
+		private ForkJoinPool pool;
+		// An instance variable to keep track of whether levels may be
+		// searched bottom-up
+		private boolean directionOptimizing = false;
+		// An instance variable to hold the index of the strongly connected
+		// components, null if there is no index
+		private ComponentIndex componentIndex;
+		// An instance variable to hold the measurements of the current
+		// query, null if it is not measured
+		private QueryStats stats;
 
 		/**
 		 * An argument constructor to create a new instance of
 		 * ReachableWordsFinder class
 		 * 
 		 * @param graph
-		 *            A DiGraph that holds the value
+		 *            A WordGraph that holds the value
 		 */
-		public ReachableWordsFinder(DiGraph graph) {
+		public ReachableWordsFinder(WordGraph graph) {
 
 			this.graph = graph;
 		}
 
+		/**
+		 * A method to set the threads that share large levels of a search
+		 * 
+		 * @param pool
+		 *            The ForkJoinPool to search with, null to search on a
+		 *            single thread
+		 */
+		public void setPool(ForkJoinPool pool) {
+
+			this.pool = pool;
+		}
+
+		/**
+		 * A method to set whether levels may be searched bottom-up. The
+		 * reverse index of the WordGraph must be built before they are.
+		 * 
+		 * @param directionOptimizing
+		 *            true to switch between top-down and bottom-up levels,
+		 *            false to always search top-down
+		 */
+		public void setDirectionOptimizing(boolean directionOptimizing) {
+
+			this.directionOptimizing = directionOptimizing;
+		}
+
+		/**
+		 * A method to set the index of the strongly connected components used
+		 * to count all the words reachable from a word
+		 * 
+		 * @param componentIndex
+		 *            The ComponentIndex of the graph, null to always search
+		 */
+		public void setComponentIndex(ComponentIndex componentIndex) {
+
+			this.componentIndex = componentIndex;
+		}
+
+		/**
+		 * A method to set where the searches count their work
+		 * 
+		 * @param stats
+		 *            The QueryStats of the current query, null to stop
+		 *            counting
+		 */
+		public void setStats(QueryStats stats) {
+
+			this.stats = stats;
+		}
+
 		/**
 		 * A method to return the number of reachable words that begin from word
 		 * 
@@ -231,7 +5608,7 @@ public class WordPairs {
 		 */
 		public int reachableFrom(String word) {
 
-			return this.getAllReachableWords(word, false, 0).reachedString().size();
+			return this.reachableFrom(word, 0);
 		}
 
 		/**
@@ -249,49 +5626,213 @@ public class WordPairs {
 		 */
 		public int reachableFrom(String word, int maxLength) {
 
-			return this.getAllReachableWords(word, true, maxLength).reachedString().size();
+			// a maximum length of 0 does not limit the length, so the count
+			// only depends on the component of the word
+			if (maxLength == 0 && this.componentIndex != null) {
+				int id = this.graph.getId(word);
+				return id < 0 ? 0 : this.componentIndex.getReachableCount(id);
+			}
+			return this.countReached(this.getAllReachableWords(word, maxLength));
+		}
+
+		/**
+		 * A method to find the number of words reachable from word for each of
+		 * several maximum lengths, using a single search from word
+		 * 
+		 * @param word
+		 *            The word from which the reachable number of words are
+		 *            calculated
+		 * @param maxLengths
+		 *            The maximum lengths of the chains that start from word
+		 * @return The number of words that are reachable from word within
+		 *         every maximum length, in the order of maxLengths
+		 */
+		public int[] reachableFrom(String word, int[] maxLengths) {
+
+			DistanceTable table = new DistanceTable(this.graph, word);
+			if (this.stats != null) {
+				this.stats.addTable(this.graph, table);
+			}
+
+			int[] counts = new int[maxLengths.length];
+			for (int i = 0; i < maxLengths.length; i++) {
+				counts[i] = table.reachedWithin(maxLengths[i]);
+			}
+			return counts;
 		}
 
 		/**
-		 * A method to get a CustomQueue containing all the reachable Nodes from
-		 * the word word
+		 * A method to get the level at which every word reachable from word is
+		 * first reached. Every word is visited once and only its level is
+		 * stored, so the memory used is linear in the number of words.
 		 * 
 		 * @param word
 		 *            The String from which to find the reachable number of
 		 *            words
-		 * @param checkLength
-		 *            True if to check the length of the reachable words, false
-		 *            otherwise
 		 * @param maxLength
 		 *            The maximum length of the reachable words that start from
-		 *            word
-		 * @return A CustomQueue that contains all the reachable Strings from
-		 *         word and are of maximum length maxxLength
+		 *            word, 0 if the length is not to be limited
+		 * @return An array holding the level of every word, indexed by the
+		 *         number of the word, -1 for the words that are not reached
+		 */
+		private int[] getAllReachableWords(String word, int maxLength) {
+
+			int[] levels = new int[this.graph.size()];
+			Arrays.fill(levels, -1);
+
+			int source = this.graph.getId(word);
+
+			if (source < 0 || maxLength < 0) {
+				return levels;
+			}
+
+			if (this.pool != null || this.directionOptimizing) {
+				return this.getAllReachableWordsByLevel(source, maxLength, levels);
+			}
+
+			int[] queue = new int[this.graph.size()];
+			int[] adjacent = new int[this.graph.getBufferSize()];
+			int head = 0;
+			int tail = 0;
+
+			if (this.stats != null) {
+				this.stats.allocate(2L * this.graph.size());
+			}
+
+			levels[source] = 0;
+			queue[tail++] = source;
+
+			while (head < tail) {
+
+				int current = queue[head++];
+				int level = levels[current];
+
+				if (maxLength != 0 && level >= maxLength) {
+					// the queue is in level order, so nothing left can expand
+					break;
+				}
+
+				if (this.stats != null) {
+					this.stats.expand(this.graph.endEdge(current) - this.graph.firstEdge(current), tail - head);
+				}
+
+				int start = this.graph.loadAdjacent(current, adjacent);
+				int stop = start + this.graph.endEdge(current) - this.graph.firstEdge(current);
+				int[] targets = this.graph.getTargets(adjacent);
+				for (int e = start; e < stop; e++) {
+					int child = targets[e];
+					if (levels[child] < 0) {
+						levels[child] = level + 1;
+						queue[tail++] = child;
+					}
+				}
+			}
+			return levels;
+		}
+
+		/**
+		 * A method to find the level of every word reachable from the word
+		 * source one level at a time. A level with few words is expanded on
+		 * the calling thread, and a larger level is split between the threads
+		 * of the pool, which claim every newly reached word with a single
+		 * compare and set. When direction optimizing, a level whose edges
+		 * cover a large part of the words not reached yet is searched
+		 * bottom-up instead. The levels found are the same as the ones found
+		 * by a search on a single thread.
+		 * 
+		 * @param source
+		 *            The number of the word from which the search starts
+		 * @param maxLength
+		 *            The maximum length of the reachable words, 0 if the
+		 *            length is not to be limited
+		 * @param levels
+		 *            The level of every word, all -1 to begin with
+		 * @return The array levels, holding the level of every reached word
 		 */
-		private CustomQueue getAllReachableWords(String word, boolean checkLength, int maxLength) {
+		private int[] getAllReachableWordsByLevel(int source, int maxLength, int[] levels) {
+
+			int[] frontier = { source };
+			int level = 0;
+			levels[source] = 0;
 
-			Map<String, Boolean> childVisited = new HashMap<>();
+			boolean bottomUp = false;
+			long unexploredEdges = this.graph.edgeCount() - this.getEdgeCount(frontier);
 
-			CustomQueue queue = new CustomQueue(maxLength);
+			if (this.stats != null) {
+				this.stats.allocate(this.graph.size());
+			}
 
-			Node firstNode = new Node(word, null, this.graph);
+			while (frontier.length > 0 && (maxLength == 0 || level < maxLength)) {
 
-			queue.add(firstNode);
+				if (this.stats != null) {
+					this.stats.expandLevel(frontier.length, this.getEdgeCount(frontier));
+				}
 
-			Node node = null;
-			while (queue.canContinue()) {
+				if (this.directionOptimizing) {
+					long frontierEdges = this.getEdgeCount(frontier);
+					if (!bottomUp && frontierEdges > unexploredEdges / TO_BOTTOM_UP) {
+						bottomUp = true;
+					} else if (bottomUp && frontier.length < this.graph.size() / TO_TOP_DOWN) {
+						bottomUp = false;
+					}
+				}
 
-				node = queue.remove();
-				if (this.isNewNode(childVisited, node)) {
-					ArrayList<Node> childNodes = node.getChildren();
-					childVisited.put(node.value, true);
-					for (int i = 0; i < childNodes.size(); i++) {
-						Node n = childNodes.get(i);
-						queue.add(n);
+				if (bottomUp) {
+					if (this.pool == null) {
+						frontier = expandBottomUp(this.graph, 0, this.graph.size(), level, levels);
+					} else {
+						frontier = this.pool
+								.invoke(new FrontierTask(this.graph, null, 0, this.graph.size(), level, levels));
 					}
+				} else if (this.pool == null || frontier.length < PARALLEL_FRONTIER) {
+					frontier = expandFrontier(this.graph, frontier, 0, frontier.length, level, levels, false);
+				} else {
+					frontier = this.pool
+							.invoke(new FrontierTask(this.graph, frontier, 0, frontier.length, level, levels));
+				}
+
+				unexploredEdges -= this.getEdgeCount(frontier);
+				level++;
+
+				if (this.stats != null) {
+					this.stats.allocate(frontier.length);
+				}
+			}
+			return levels;
+		}
+
+		/**
+		 * A method to count the edges leaving a set of words
+		 * 
+		 * @param words
+		 *            The numbers of the words
+		 * @return The number of edges leaving the words
+		 */
+		private long getEdgeCount(int[] words) {
+
+			long edges = 0;
+			for (int i = 0; i < words.length; i++) {
+				edges += this.graph.endEdge(words[i]) - this.graph.firstEdge(words[i]);
+			}
+			return edges;
+		}
+
+		/**
+		 * A method to count the number of words that have been reached
+		 * 
+		 * @param levels
+		 *            The level of every word, -1 for the words not reached
+		 * @return The number of words that have been reached
+		 */
+		private int countReached(int[] levels) {
+
+			int count = 0;
+			for (int i = 0; i < levels.length; i++) {
+				if (levels[i] >= 0) {
+					count++;
 				}
 			}
-			return queue;
+			return count;
 		}
 
 		/**
@@ -310,6 +5851,34 @@ public class WordPairs {
 			return this.getReachableWordsString(word, maxLength);
 		}
 
+		/**
+		 * A method to write the reachable words that start with word and are
+		 * of maximum length maxLength to an Appendable
+		 * 
+		 * @param word
+		 *            The String from which the reachable words begin
+		 * @param maxLength
+		 *            The maximum length of the word that start with word
+		 * @param out
+		 *            The Appendable to write the words to, in a format
+		 *            [word1] [word2, word3] .. .. [wordn]
+		 * @throws IOException
+		 *             if out cannot be written to
+		 */
+		public void reachableWords(String word, int maxLength, Appendable out) throws IOException {
+
+			if (maxLength == 0) {
+				// only level 0 is written, which needs no search
+				int source = this.graph.getId(word);
+				List<String> words = source < 0 ? Collections.emptyList()
+						: Collections.singletonList(this.graph.getWord(source));
+				writeLevel(words, true, out);
+				out.append("\n");
+				return;
+			}
+			this.writeLevels(this.getAllReachableWords(word, maxLength), maxLength, out);
+		}
+
 		/**
 		 * A method to get the reachable words that begin from String word and
 		 * are of maximum length maxLength
@@ -322,244 +5891,289 @@ public class WordPairs {
 		 */
 		private String getReachableWordsString(String word, int maxLength) {
 
-			CustomQueue cq = this.getAllReachableWords(word, true, maxLength);
-			Set<Node> queue = cq.reached();
-
-			Map<String, Integer> map = this.getValueToLevelMap(queue);
-
-			String s = "";
-
-			boolean first = true;
+			StringBuilder s = new StringBuilder();
+			try {
+				this.reachableWords(word, maxLength, s);
+			} catch (IOException e) {
+				// a StringBuilder never throws
+				throw new IllegalStateException(e);
+			}
+			return s.toString();
+		}
 
-			for (int i = 0; i <= maxLength; i++) {
-				if (first) {
-					first = false;
-				} else {
-					s += "\n";
-				}
-				s += "[";
+		/**
+		 * A method to write the words reached by a search grouped by level.
+		 * The words are put in order of level with a counting sort, so every
+		 * word is looked at once, and then the words of every level are
+		 * sorted by themselves.
+		 * 
+		 * @param levels
+		 *            The level of every word, -1 for the words not reached
+		 * @param maxLength
+		 *            The deepest level to write
+		 * @param out
+		 *            The Appendable to write the levels to
+		 * @throws IOException
+		 *             if out cannot be written to
+		 */
+		private void writeLevels(int[] levels, int maxLength, Appendable out) throws IOException {
 
-				Iterator<String> iter = map.keySet().iterator();
+			if (maxLength < 0) {
+				out.append("\n");
+				return;
+			}
 
-				boolean first1 = true;
-				while (iter.hasNext()) {
-					String k = iter.next();
-					if (map.get(k) == i) {
-						if (first1) {
-							first1 = false;
-						} else {
-							s += ", ";
-						}
-						s += k;
-					}
+			// start[l] becomes where the words of level l begin in byLevel
+			int[] start = new int[maxLength + 2];
+			for (int i = 0; i < levels.length; i++) {
+				if (levels[i] >= 0 && levels[i] <= maxLength) {
+					start[levels[i] + 1]++;
 				}
-				s += "]";
 			}
-			return s + "\n";
-		}
+			for (int l = 0; l <= maxLength; l++) {
+				start[l + 1] += start[l];
+			}
 
-		/**
-		 * A method to get a map that contains a map with keys of values and
-		 * value of its level
-		 * 
-		 * @param set
-		 *            A set containing all the nodes
-		 * @return A map containing all the value to level mapping
-		 */
-		private Map<String, Integer> getValueToLevelMap(Set<Node> set) {
+			int[] next = Arrays.copyOf(start, maxLength + 1);
+			int[] byLevel = new int[start[maxLength + 1]];
+			for (int i = 0; i < levels.length; i++) {
+				if (levels[i] >= 0 && levels[i] <= maxLength) {
+					byLevel[next[levels[i]]++] = i;
+				}
+			}
 
-			Map<String, Integer> map = new TreeMap<>();
-			Iterator<Node> it = set.iterator();
-			while (it.hasNext()) {
-				Node n = it.next();
-				if (!map.containsKey(n.value)) {
-					map.put(n.value, n.getHistory().size());
+			for (int l = 0; l <= maxLength; l++) {
+				String[] words = new String[start[l + 1] - start[l]];
+				for (int i = 0; i < words.length; i++) {
+					words[i] = this.graph.getWord(byLevel[start[l] + i]);
 				}
+				Arrays.sort(words);
+				writeLevel(Arrays.asList(words), l == 0, out);
 			}
-			return map;
+			out.append("\n");
 		}
+	}
 
-		/**
-		 * A method to return True if the Node n is not in the Map visited,
-		 * false if it does
-		 * 
-		 * @param visited
-		 *            A map associating value with True if it is visited, False
-		 *            otherwise
-		 * @param n
-		 *            A node which is to be determined if it is already visited
-		 * @return True if the node is already visited, False otherwise
-		 */
-		private boolean isNewNode(Map<String, Boolean> visited, Node n) {
-			return (visited.get(n.value) == null || visited.get(n.value) == false);
+	/**
+	 * A method to write one level of reachable words in the format [word1,
+	 * word2]
+	 * 
+	 * @param words
+	 *            The sorted words of the level
+	 * @param first
+	 *            true if this is the first level written
+	 * @param out
+	 *            The Appendable to write the level to
+	 * @throws IOException
+	 *             if out cannot be written to
+	 */
+	private static void writeLevel(List<String> words, boolean first, Appendable out) throws IOException {
+
+		if (!first) {
+			out.append("\n");
 		}
+		out.append("[");
+		for (int i = 0; i < words.size(); i++) {
+			if (i > 0) {
+				out.append(", ");
+			}
+			out.append(words.get(i));
+		}
+		out.append("]");
 	}
 
 	/**
-	 * A class to represent a Custom Queue. This is very similar to and uses a
-	 * queue. It has methods that are very similar to a queue.
+	 * A class to find the levels of the reachable words one at a time. Each
+	 * call to next() searches one more level of the WordGraph and returns its
+	 * words in sorted order, the same words reachableWords puts in that
+	 * level.
 	 * 
 	 * @author Sanjeeb Sangraula
 	 *
 	 */
-	class CustomQueue {
+	class LevelIterator implements Iterator<List<String>> {
 
-		// An instance variable to keep track of current level
+		// An instance variable to hold the graph
+		private WordGraph graph;
+		// An instance variable to hold the deepest level to return
+		private int maxLength;
+		// An instance variable to hold the next level to return
 		private int level = 0;
-		// An instance variable to keep track of whether maximum level has been
+		// An instance variable to keep track of the words already reached
+		private boolean[] reached;
+		// An instance variable to hold the words in the order they are
 		// reached
-		private boolean maxLevelReached = false;
-		// An instance variable to keep track of maximum level
-		private int maxLevel = 0;
-		// An instance variable to keep track of reached nodes
-		private Set<Node> reached;
-		// An instance variable to keep track of a list of nodes using a queue
-		private LinkedList<Node> queue;
-		// An instance variable to keep track of whether to limit by level
-		private boolean limitByLevel = false;
-
-		/**
-		 * An argument constructor to create a new instance of CustomQueue with
-		 * a maximum level of maxLevel
-		 * 
-		 * @param maxLevel
-		 *            The maximum level of the CustomQueue
-		 */
-		public CustomQueue(int maxLevel) {
-			if (maxLevel == 0) {
-				this.limitByLevel = false;
-			} else {
-				this.limitByLevel = true;
-				this.maxLevel = maxLevel + 1;
-			}
-			this.queue = new LinkedList<>();
-			this.reached = new HashSet<>();
-		}
+		private int[] queue;
+		// An instance variable to hold the adjacent words of the word being
+		// expanded
+		private int[] adjacent;
+		// An instance variable to hold where the last level returned starts
+		// in queue
+		private int head = 0;
+		// An instance variable to hold where the last level returned ends in
+		// queue
+		private int tail = 0;
 
 		/**
-		 * A method to return a Set of Strings containing all the Strings that
-		 * have been reached so far
+		 * An argument constructor to create a new LevelIterator
 		 * 
-		 * @return A set containing all the reached Strings
+		 * @param graph
+		 *            The WordGraph to search
+		 * @param word
+		 *            The word from which the word chains begin
+		 * @param maxLength
+		 *            The deepest level to return
 		 */
-		public Set<String> reachedStrings() {
-			Set<String> set = new HashSet<String>();
-			Iterator<Node> iter = this.reached.iterator();
+		public LevelIterator(WordGraph graph, String word, int maxLength) {
 
-			while (iter.hasNext()) {
-				Node n = iter.next();
-				set.add(n.value);
-			}
-			return set;
-		}
+			this.graph = graph;
+			this.maxLength = maxLength;
+			this.reached = new boolean[graph.size()];
+			this.queue = new int[graph.size()];
+			this.adjacent = new int[graph.getBufferSize()];
 
-		/**
-		 * A method to get a Set of nodes that are reached
-		 * 
-		 * @return The Set of nodes that are reached
-		 */
-		public Set<Node> reached() {
-			return this.reached;
+			int source = graph.getId(word);
+			if (source >= 0) {
+				this.reached[source] = true;
+				this.queue[this.tail++] = source;
+			}
 		}
 
 		/**
-		 * A method to return a Set of Strings that are reached
+		 * A method to check whether there are more levels to return
 		 * 
-		 * @return A Set containing all the reached Strings
+		 * @return true if the deepest level has not been returned yet
 		 */
-		public Set<String> reachedString() {
-			Iterator<Node> iter = this.reached.iterator();
-			Set<String> set = new TreeSet<String>();
+		@Override
+		public boolean hasNext() {
 
-			while (iter.hasNext()) {
-				Node n = iter.next();
-				set.add(n.value);
-			}
-			return set;
+			return this.level <= this.maxLength;
 		}
 
 		/**
-		 * A method to determine if we can continue adding more to the queue
+		 * A method to search the next level and return its words
 		 * 
-		 * @return True if we can continue adding more to the queue, False
-		 *         otherwise
+		 * @return The sorted words of the next level
 		 */
-		public boolean canContinue() {
-			if (this.queue.isEmpty()) {
-				return false;
-			} else {
-				if (this.limitByLevel) {
-					return !this.maxLevelReached;
-				} else {
-					return true;
-				}
-			}
-		}
+		@Override
+		public List<String> next() {
 
-		/**
-		 * A method to add a new node to an instance of CustomQueue
-		 * 
-		 * @param n
-		 *            A node to add to this CustomQueue
-		 */
-		public void add(Node n) {
-			if (n.getLevel() > this.level) {
-				this.level = n.getLevel();
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
 			}
 
-			this.checkLevel();
-			if (this.limitByLevel) {
-				if (this.maxLevelReached) {
-					return;
+			if (this.level > 0) {
+				int end = this.tail;
+				for (int i = this.head; i < end; i++) {
+					int current = this.queue[i];
+					int start = this.graph.loadAdjacent(current, this.adjacent);
+					int stop = start + this.graph.endEdge(current) - this.graph.firstEdge(current);
+					int[] targets = this.graph.getTargets(this.adjacent);
+					for (int e = start; e < stop; e++) {
+						int child = targets[e];
+						if (!this.reached[child]) {
+							this.reached[child] = true;
+							this.queue[this.tail++] = child;
+						}
+					}
 				}
+				this.head = end;
 			}
-			if (!this.reached.contains(n)) {
-				this.reached.add(n);
-				this.queue.add(n);
-			}
-		}
+			this.level++;
 
-		/**
-		 * A method to check the level of this CustomQueue.
-		 */
-		private void checkLevel() {
-			if (this.level >= this.maxLevel) {
-				this.maxLevelReached = true;
+			String[] words = new String[this.tail - this.head];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = this.graph.getWord(this.queue[this.head + i]);
 			}
-		}
-
-		/**
-		 * A method to remove a Node from the queue and return the Node
-		 * 
-		 * @return The Node that was removed
-		 */
-		public Node remove() {
-			return this.queue.remove();
+			Arrays.sort(words);
+			return Arrays.asList(words);
 		}
 	}
 
 	/**
-	 * A class that helps in finding the word chains from the DiGraph.
+	 * A class that helps in finding the word chains from the WordGraph.
 	 * 
 	 * @author Sanjeeb Sangraula
 	 *
 	 */
 	class WordChainFinder {
 
+		// The number of landmarks used to search towards the last word
+		private static final int ACTIVE_LANDMARKS = 4;
+
 		// An instance variable to hold the graph
-		private DiGraph graph;
+		private WordGraph graph;
+		// An instance variable to keep track of whether to search from both
+		// ends of the chain
+		private boolean bidirectional = false;
+		// An instance variable to hold the index of the strongly connected
+		// components, null if there is no index
+		private ComponentIndex componentIndex;
+		// An instance variable to hold the index of the distances to and
+		// from the landmarks, null if there is no index
+		private LandmarkIndex landmarkIndex;
+		// An instance variable to hold the measurements of the current
+		// query, null if it is not measured
+		private QueryStats stats;
 
 		/**
 		 * An argument constructor to create a new instance of the
 		 * WordChainFinder class
 		 * 
 		 * @param graph
-		 *            A DiGraph contining the words
+		 *            A WordGraph contining the words
 		 */
-		public WordChainFinder(DiGraph graph) {
+		public WordChainFinder(WordGraph graph) {
 			this.graph = graph;
 		}
 
+		/**
+		 * A method to set whether to search from both ends of the chain. The
+		 * reverse index of the WordGraph must be built before searching from
+		 * both ends.
+		 * 
+		 * @param bidirectional
+		 *            true to search from both ends, false to search forward
+		 *            only
+		 */
+		public void setBidirectional(boolean bidirectional) {
+			this.bidirectional = bidirectional;
+		}
+
+		/**
+		 * A method to set the index of the strongly connected components used
+		 * to skip the search for cycles that cannot exist
+		 * 
+		 * @param componentIndex
+		 *            The ComponentIndex of the graph, null to always search
+		 */
+		public void setComponentIndex(ComponentIndex componentIndex) {
+			this.componentIndex = componentIndex;
+		}
+
+		/**
+		 * A method to set the landmark index used to search towards the last
+		 * word of a chain
+		 * 
+		 * @param landmarkIndex
+		 *            The LandmarkIndex of the graph, null to search without
+		 *            landmarks
+		 */
+		public void setLandmarkIndex(LandmarkIndex landmarkIndex) {
+			this.landmarkIndex = landmarkIndex;
+		}
+
+		/**
+		 * A method to set where the searches count their work
+		 * 
+		 * @param stats
+		 *            The QueryStats of the current query, null to stop
+		 *            counting
+		 */
+		public void setStats(QueryStats stats) {
+			this.stats = stats;
+		}
+
 		/**
 		 * A method to find a String of Words that start with first and end with
 		 * last
@@ -572,8 +6186,8 @@ public class WordPairs {
 		 *         end with last
 		 */
 		public String wordChain(String first, String last) {
-			Node n = this.findShortestSequence(first, last);
-			return this.getWordChainOutput(n);
+			int[] chain = this.findShortestSequence(first, last);
+			return this.getWordChainOutput(chain);
 		}
 
 		/**
@@ -588,55 +6202,284 @@ public class WordPairs {
 		 *         and ends with last
 		 */
 		public int chainLength(String first, String last) {
-			Node n = this.findShortestSequence(first, last);
-			if (n == null) {
+			if (this.landmarkIndex != null) {
+				int source = this.graph.getId(first);
+				int target = this.graph.getId(last);
+				if (source >= 0 && target >= 0 && source != target) {
+					// when the bounds meet the length is known without a
+					// search
+					int lower = this.landmarkIndex.lowerBound(source, target);
+					if (lower == Integer.MAX_VALUE || lower == this.landmarkIndex.upperBound(source, target)) {
+						return lower;
+					}
+				}
+			}
+			int[] chain = this.findShortestSequence(first, last);
+			if (chain == null) {
 				return Integer.MAX_VALUE;
 			}
-			int size = this.getWordPairsList(n).size();
-			return size;
+			return chain.length - 1;
+		}
+
+		/**
+		 * A method to return the number of word pairs in the shortest chains
+		 * from first to every word in lasts, using a single search from first
+		 * 
+		 * @param first
+		 *            The String from where the chains start
+		 * @param lasts
+		 *            The Strings where the chains end
+		 * @return A map from every String in lasts to the number of word pairs
+		 *         in its shortest chain, Integer.MAX_VALUE if there is none
+		 */
+		public Map<String, Integer> chainLengths(String first, Collection<String> lasts) {
+
+			DistanceTable table = new DistanceTable(this.graph, first);
+			if (this.stats != null) {
+				this.stats.addTable(this.graph, table);
+			}
+
+			Map<String, Integer> lengths = new LinkedHashMap<>();
+			for (String last : lasts) {
+				lengths.put(last, table.chainLength(this.graph.getId(last)));
+			}
+			return lengths;
+		}
+
+		/**
+		 * A method to return the number of word pairs in the shortest chains
+		 * from every word in firsts to every word in lasts, using a single
+		 * search from every distinct word in firsts
+		 * 
+		 * @param firsts
+		 *            The Strings from where the chains start
+		 * @param lasts
+		 *            The Strings where the chains end
+		 * @return A map from every String in firsts to a map from every String
+		 *         in lasts to the number of word pairs in the shortest chain
+		 */
+		public Map<String, Map<String, Integer>> chainLengths(Collection<String> firsts, Collection<String> lasts) {
+
+			Map<String, Map<String, Integer>> lengths = new LinkedHashMap<>();
+			for (String first : firsts) {
+				if (!lengths.containsKey(first)) {
+					lengths.put(first, this.chainLengths(first, lasts));
+				}
+			}
+			return lengths;
 		}
 
 		/**
-		 * A method to find the Node that gives the shortest sequence from
-		 * String first to String last
+		 * A method to find the shortest sequence of words from String first to
+		 * String last. Only the predecessor of every visited word is stored
+		 * during the search, and the sequence is rebuilt once the String last
+		 * is found.
 		 * 
 		 * @param first
 		 *            The String from where the word chain begins
 		 * @param last
 		 *            A String from where the word chain ends
-		 * @return The node that is the shortest path from the String first to
-		 *         the String last
+		 * @return An array containing the numbers of the words of the shortest
+		 *         sequence from the String first to the String last, null if
+		 *         there is no such sequence
+		 */
+		private int[] findShortestSequence(String first, String last) {
+
+			int source = this.graph.getId(first);
+			int target = this.graph.getId(last);
+
+			if (source < 0 || target < 0) {
+				return null;
+			}
+
+			// a word can only be on a cycle if its component has other words
+			// or the word has a pair with itself
+			if (source == target && this.componentIndex != null && !this.componentIndex.isOnCycle(source)) {
+				return null;
+			}
+
+			if (this.landmarkIndex != null && source != target) {
+				if (this.landmarkIndex.lowerBound(source, target) == Integer.MAX_VALUE) {
+					return null;
+				}
+				return this.findShortestSequenceByLandmarks(source, target);
+			}
+
+			// a cycle has to leave the word before the two searches can
+			// meet, so cycles are always searched forward
+			if (this.bidirectional && source != target) {
+				return this.findShortestSequenceFromBothEnds(source, target);
+			}
+			return this.findShortestSequenceForward(source, target);
+		}
+
+		/**
+		 * A method to find the shortest sequence of words from the word source
+		 * to the word target by searching forward from the word source
+		 * 
+		 * @param source
+		 *            The number of the word where the word chain begins
+		 * @param target
+		 *            The number of the word where the word chain ends
+		 * @return An array containing the numbers of the words of the shortest
+		 *         sequence, null if there is no such sequence
+		 */
+		private int[] findShortestSequenceForward(int source, int target) {
+
+			int[] predecessors = new int[this.graph.size()];
+			Arrays.fill(predecessors, -1);
+
+			int[] queue = new int[this.graph.size()];
+			int[] adjacent = new int[this.graph.getBufferSize()];
+			int head = 0;
+			int tail = 0;
+
+			if (this.stats != null) {
+				this.stats.allocate(2L * this.graph.size());
+			}
+
+			predecessors[source] = source;
+			queue[tail++] = source;
+
+			while (head < tail) {
+
+				int word = queue[head++];
+
+				if (this.stats != null) {
+					this.stats.expand(this.graph.endEdge(word) - this.graph.firstEdge(word), tail - head);
+				}
+
+				int start = this.graph.loadAdjacent(word, adjacent);
+				int stop = start + this.graph.endEdge(word) - this.graph.firstEdge(word);
+				int[] targets = this.graph.getTargets(adjacent);
+				for (int e = start; e < stop; e++) {
+
+					int child = targets[e];
+
+					if (child == target) {
+						return this.getChain(predecessors, source, word, target);
+					}
+					if (predecessors[child] < 0) {
+						predecessors[child] = word;
+						queue[tail++] = child;
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * A method to find the shortest sequence of words from the word source
+		 * to the word target by always expanding a word whose chain from
+		 * source plus the lower bound of the landmark index to target is the
+		 * smallest. The lower bounds never drop by more than one along a
+		 * pair, so the first time target is taken out of the buckets its
+		 * chain is a shortest one. Words the landmarks prove cannot reach
+		 * target are never expanded.
+		 * 
+		 * @param source
+		 *            The number of the word where the word chain begins
+		 * @param target
+		 *            The number of the word where the word chain ends, which
+		 *            is not the word source
+		 * @return An array containing the numbers of the words of the shortest
+		 *         sequence, null if there is no such sequence
 		 */
-		private Node findShortestSequence(String first, String last) {
+		private int[] findShortestSequenceByLandmarks(int source, int target) {
+
+			int size = this.graph.size();
+
+			// the arrays start at 0 so they need no filling: a word's
+			// distance and bound are stored plus one, 0 while not known yet
+			int[] distances = new int[size];
+			int[] predecessors = new int[size];
+			int[] bounds = new int[size];
+			int[] adjacent = new int[this.graph.getBufferSize()];
 
-			Map<String, Boolean> childrenVisited = new HashMap<>();
+			// the buckets hold the words waiting to be expanded by their
+			// distance plus bound, as linked lists of entries numbered from
+			// 1, and a word that gets a shorter distance is added again
+			int[] bucketHeads = new int[64];
+			int[] entryWords = new int[1024];
+			int[] entryNext = new int[1024];
+			int entries = 1;
+			int waiting = 0;
 
-			LinkedList<Node> queue = new LinkedList<Node>();
+			if (this.stats != null) {
+				this.stats.allocate(3L * size);
+			}
+
+			int[] active = this.landmarkIndex.getActiveLandmarks(source, target, ACTIVE_LANDMARKS);
+			int[] targetDistances = this.landmarkIndex.getTargetDistances(target, active);
+
+			int sourceBound = this.landmarkIndex.lowerBound(source, active, targetDistances);
+			distances[source] = 1;
+			predecessors[source] = source;
+			bounds[source] = sourceBound + 1;
+			bucketHeads = this.addEntry(bucketHeads, sourceBound, entries, entryNext);
+			entryWords[entries++] = source;
+			waiting++;
+
+			for (int bucket = sourceBound; bucket < bucketHeads.length; bucket++) {
 
-			Node firstNode = new Node(first, null, this.graph);
+				while (bucketHeads[bucket] > 0) {
 
-			queue.add(firstNode);
+					int entry = bucketHeads[bucket];
+					bucketHeads[bucket] = entryNext[entry];
+					int word = entryWords[entry];
+					waiting--;
 
-			Node node = null;
+					int distance = distances[word] - 1;
 
-			while (queue.size() != 0) {
+					// an entry left behind when the word got a shorter
+					// distance
+					if (distance + bounds[word] - 1 != bucket) {
+						continue;
+					}
+					if (word == target) {
+						return this.getChain(predecessors, source, predecessors[target], target);
+					}
 
-				node = queue.poll();
+					if (this.stats != null) {
+						this.stats.expand(this.graph.endEdge(word) - this.graph.firstEdge(word), waiting);
+					}
 
-				if (this.isNewNode(childrenVisited, node)) {
+					int start = this.graph.loadAdjacent(word, adjacent);
+					int stop = start + this.graph.endEdge(word) - this.graph.firstEdge(word);
+					int[] targets = this.graph.getTargets(adjacent);
+					for (int e = start; e < stop; e++) {
 
-					ArrayList<Node> childNodes = node.getChildren();
+						int child = targets[e];
 
-					childrenVisited.put(node.value, true);
+						if (distances[child] > 0 && distances[child] <= distance + 2) {
+							continue;
+						}
+						if (bounds[child] == 0) {
+							int bound = child == target ? 0
+									: this.landmarkIndex.lowerBound(child, active, targetDistances);
+							bounds[child] = bound == Integer.MAX_VALUE ? -1 : bound + 1;
+						}
+						if (bounds[child] < 0) {
+							// the landmarks prove child cannot reach target
+							continue;
+						}
 
-					for (int i = 0; i < childNodes.size(); i++) {
+						distances[child] = distance + 2;
+						predecessors[child] = word;
 
-						Node n = childNodes.get(i);
+						// no word waiting can lead to a shorter chain than
+						// the current bucket, so target is reached for good
+						if (child == target && distance + 1 == bucket) {
+							return this.getChain(predecessors, source, word, target);
+						}
 
-						if (n.value.equals(last)) {
-							return n;
+						if (entries == entryWords.length) {
+							entryWords = Arrays.copyOf(entryWords, 2 * entries);
+							entryNext = Arrays.copyOf(entryNext, 2 * entries);
 						}
-						queue.add(n);
+						bucketHeads = this.addEntry(bucketHeads, distance + bounds[child], entries, entryNext);
+						entryWords[entries++] = child;
+						waiting++;
 					}
 				}
 			}
@@ -644,156 +6487,418 @@ public class WordPairs {
 		}
 
 		/**
-		 * A method to return the word chain output from a Node n
+		 * A method to put an entry at the head of a bucket, making room for
+		 * the bucket first if it is past the end of the buckets
 		 * 
-		 * @param n
-		 *            A node from which the String output is to be gotten
-		 * @return A String containing the word chain that contains all the
-		 *         history of Node n
+		 * @param bucketHeads
+		 *            The first entry of every bucket, 0 for an empty bucket
+		 * @param bucket
+		 *            The bucket to add the entry to
+		 * @param entry
+		 *            The number of the entry
+		 * @param entryNext
+		 *            The entry after every entry in its bucket
+		 * @return The array of the first entries, which is a new array if it
+		 *         had to grow
 		 */
-		private String getWordChainOutput(Node n) {
+		private int[] addEntry(int[] bucketHeads, int bucket, int entry, int[] entryNext) {
 
-			if (n == null) {
-				return "[]";
+			if (bucket >= bucketHeads.length) {
+				bucketHeads = Arrays.copyOf(bucketHeads, Math.max(2 * bucketHeads.length, bucket + 1));
 			}
+			entryNext[entry] = bucketHeads[bucket];
+			bucketHeads[bucket] = entry;
+			return bucketHeads;
+		}
+
+		/**
+		 * A method to find the shortest sequence of words from the word source
+		 * to the word target by searching forward from the word source and
+		 * backward from the word target at the same time. The side with the
+		 * smaller frontier expands a whole level at a time, and the search
+		 * stops after the first level in which the two sides meet.
+		 * 
+		 * @param source
+		 *            The number of the word where the word chain begins
+		 * @param target
+		 *            The number of the word where the word chain ends, which
+		 *            is not the word source
+		 * @return An array containing the numbers of the words of the shortest
+		 *         sequence, null if there is no such sequence
+		 */
+		private int[] findShortestSequenceFromBothEnds(int source, int target) {
 
-			ArrayList<String> wordPairs = this.getWordPairsList(n);
-			String s = "[";
+			int size = this.graph.size();
 
-			for (int i = 0; i < wordPairs.size(); i++) {
-				s += wordPairs.get(i);
-				if ((i + 1) < wordPairs.size()) {
-					s += ",";
+			int[] forwardLevels = new int[size];
+			int[] backwardLevels = new int[size];
+			Arrays.fill(forwardLevels, -1);
+			Arrays.fill(backwardLevels, -1);
+
+			int[] predecessors = new int[size];
+			int[] successors = new int[size];
+
+			int[] forwardQueue = new int[size];
+			int[] backwardQueue = new int[size];
+			int[] adjacent = new int[this.graph.getBufferSize()];
+			int forwardHead = 0;
+			int forwardTail = 0;
+			int backwardHead = 0;
+			int backwardTail = 0;
+
+			if (this.stats != null) {
+				this.stats.allocate(6L * size);
+			}
+
+			forwardLevels[source] = 0;
+			forwardQueue[forwardTail++] = source;
+			backwardLevels[target] = 0;
+			backwardQueue[backwardTail++] = target;
+
+			int shortest = Integer.MAX_VALUE;
+			int meeting = -1;
+
+			while (forwardHead < forwardTail && backwardHead < backwardTail) {
+
+				if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+
+					int levelEnd = forwardTail;
+					while (forwardHead < levelEnd) {
+						int word = forwardQueue[forwardHead++];
+						if (this.stats != null) {
+							this.stats.expand(this.graph.endEdge(word) - this.graph.firstEdge(word),
+									forwardTail - forwardHead + backwardTail - backwardHead);
+						}
+						int start = this.graph.loadAdjacent(word, adjacent);
+						int stop = start + this.graph.endEdge(word) - this.graph.firstEdge(word);
+						int[] targets = this.graph.getTargets(adjacent);
+						for (int e = start; e < stop; e++) {
+							int child = targets[e];
+							if (forwardLevels[child] < 0) {
+								forwardLevels[child] = forwardLevels[word] + 1;
+								predecessors[child] = word;
+								forwardQueue[forwardTail++] = child;
+								if (backwardLevels[child] >= 0
+										&& forwardLevels[child] + backwardLevels[child] < shortest) {
+									shortest = forwardLevels[child] + backwardLevels[child];
+									meeting = child;
+								}
+							}
+						}
+					}
 				} else {
-					// last iteration.
+
+					int levelEnd = backwardTail;
+					while (backwardHead < levelEnd) {
+						int word = backwardQueue[backwardHead++];
+						if (this.stats != null) {
+							this.stats.expand(this.graph.endReverseEdge(word) - this.graph.firstReverseEdge(word),
+									forwardTail - forwardHead + backwardTail - backwardHead);
+						}
+						int start = this.graph.loadReverseAdjacent(word, adjacent);
+						int stop = start + this.graph.endReverseEdge(word) - this.graph.firstReverseEdge(word);
+						int[] sources = this.graph.getSources(adjacent);
+						for (int e = start; e < stop; e++) {
+							int parent = sources[e];
+							if (backwardLevels[parent] < 0) {
+								backwardLevels[parent] = backwardLevels[word] + 1;
+								successors[parent] = word;
+								backwardQueue[backwardTail++] = parent;
+								if (forwardLevels[parent] >= 0
+										&& forwardLevels[parent] + backwardLevels[parent] < shortest) {
+									shortest = forwardLevels[parent] + backwardLevels[parent];
+									meeting = parent;
+								}
+							}
+						}
+					}
+				}
+
+				// every chain no longer than the levels searched so far has
+				// been seen, so the shortest meeting is the shortest chain
+				if (meeting >= 0) {
+					return this.getMeetingChain(predecessors, successors, source, meeting, target);
 				}
 			}
-			return (s + "]");
+			return null;
 		}
 
 		/**
-		 * A method to get word pairs from the Node n
+		 * A method to rebuild a chain of words that was found from both ends,
+		 * by following the predecessors back from the word meeting to the
+		 * word source and the successors on from the word meeting to the word
+		 * target
 		 * 
-		 * @param n
-		 *            The Node from which the word chains are found
-		 * @return An ArrayList containing the word pairs
+		 * @param predecessors
+		 *            The number of the word every word reached by the forward
+		 *            search was reached from
+		 * @param successors
+		 *            The number of the word every word reached by the backward
+		 *            search leads to
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param meeting
+		 *            The number of the word where the two searches met
+		 * @param target
+		 *            The number of the word where the chain ends
+		 * @return An array containing the numbers of the words of the chain in
+		 *         order
 		 */
-		private ArrayList<String> getWordPairsList(Node n) {
+		private int[] getMeetingChain(int[] predecessors, int[] successors, int source, int meeting, int target) {
 
-			ArrayList<String> parents = n.getHistory();
-			ArrayList<String> wordPairs = new ArrayList<>();
+			int length = 1;
+			for (int word = meeting; word != source; word = predecessors[word]) {
+				length++;
+			}
+			int forwardLength = length;
+			for (int word = meeting; word != target; word = successors[word]) {
+				length++;
+			}
+
+			int[] chain = new int[length];
 
-			for (int i = 0; (i + 1) < parents.size(); i++) {
-				wordPairs.add(parents.get(i) + " " + parents.get(i + 1));
+			int i = forwardLength - 1;
+			for (int word = meeting; word != source; word = predecessors[word]) {
+				chain[i--] = word;
 			}
+			chain[0] = source;
 
-			wordPairs.add(parents.get(parents.size() - 1) + " " + n.value);
+			i = forwardLength;
+			for (int word = meeting; word != target; word = successors[word]) {
+				chain[i++] = successors[word];
+			}
 
-			return wordPairs;
+			return chain;
+		}
+
+		/**
+		 * A method to rebuild a chain of words by following the predecessors
+		 * back from the word parent to the word source
+		 * 
+		 * @param predecessors
+		 *            The number of the word every visited word was reached
+		 *            from
+		 * @param source
+		 *            The number of the word where the chain starts
+		 * @param parent
+		 *            The number of the word from which the word last was
+		 *            reached
+		 * @param last
+		 *            The number of the word where the chain ends
+		 * @return An array containing the numbers of the words of the chain in
+		 *         order
+		 */
+		private int[] getChain(int[] predecessors, int source, int parent, int last) {
+
+			int length = 2;
+			for (int word = parent; word != source; word = predecessors[word]) {
+				length++;
+			}
+
+			int[] chain = new int[length];
+			chain[length - 1] = last;
+
+			int i = length - 2;
+			for (int word = parent; word != source; word = predecessors[word]) {
+				chain[i--] = word;
+			}
+			chain[0] = source;
+
+			return chain;
+		}
+
+		/**
+		 * A method to return the word chain output from a chain of words
+		 * 
+		 * @param chain
+		 *            The numbers of the words of the chain in order, or null if
+		 *            there is no chain
+		 * @return A String containing the word chain that contains all the
+		 *         word pairs of the chain
+		 */
+		private String getWordChainOutput(int[] chain) {
+
+			if (chain == null) {
+				return "[]";
+			}
+
+			ArrayList<String> wordPairs = this.getWordPairsList(chain);
+			StringBuilder s = new StringBuilder("[");
+
+			for (int i = 0; i < wordPairs.size(); i++) {
+				s.append(wordPairs.get(i));
+				if ((i + 1) < wordPairs.size()) {
+					s.append(",");
+				}
+			}
+			return s.append("]").toString();
 		}
 
 		/**
-		 * A method to return True if the Node n is a new node, False otherwise
+		 * A method to get word pairs from a chain of words
 		 * 
-		 * @param visited
-		 *            A Map containing the Node values and if they have been
-		 *            visited already
-		 * @param node
-		 *            A Node which is to be found to be visited
-		 * @return True if the Node n has been visited, False otherwise
+		 * @param chain
+		 *            The numbers of the words of the chain in order
+		 * @return An ArrayList containing the word pairs
 		 */
-		private boolean isNewNode(Map<String, Boolean> visited, Node node) {
+		private ArrayList<String> getWordPairsList(int[] chain) {
+
+			ArrayList<String> wordPairs = new ArrayList<>();
+
+			for (int i = 0; (i + 1) < chain.length; i++) {
+				wordPairs.add(this.graph.getWord(chain[i]) + " " + this.graph.getWord(chain[i + 1]));
+			}
 
-			return (visited.get(node.value) == null || visited.get(node.value) == false);
+			return wordPairs;
 		}
 	}
 
 	/**
-	 * A class to represent a Node in a graph
+	 * A class to answer queries on one version of the graph from many
+	 * threads at once. All the fields are final and the WordGraph is never
+	 * changed after it is built, and every query keeps its search state in
+	 * arrays of its own, so no locking is needed. A QueryView does not use
+	 * the query cache, the tracked words or the search threads, as those are
+	 * shared state of WordPairs; the threads calling the view are the
+	 * parallelism.
 	 * 
 	 * @author Sanjeeb Sangraula
 	 *
 	 */
-	class Node {
+	class QueryView {
 
-		// An instance variable to contain the DiGraph
-		private DiGraph graph;
-		// An instance variable to hold the Node's value
-		private String value = null;
-		// An instance variable to hold the history of traversal of the Node n
-		private ArrayList<String> history;
+		// An instance variable to hold the graph
+		private final WordGraph graph;
+		// An instance variable to hold the WordChainFinder of this view
+		private final WordChainFinder wordChainFinder;
+		// An instance variable to hold the ReachableWordsFinder of this view
+		private final ReachableWordsFinder reachableWordsFinder;
+		// An instance variable to hold the number of this version of the
+		// graph
+		private final long version;
 
 		/**
-		 * An argument constructor to create a new instance of Node
+		 * An argument constructor to create a new QueryView with the search
+		 * settings WordPairs has now
 		 * 
-		 * @param value
-		 *            The value of the Node
-		 * @param parent
-		 *            The Node that is the parent of this Node
 		 * @param graph
-		 *            The DiGraph that contains the list of words
+		 *            The WordGraph to answer the queries on
+		 * @param version
+		 *            The number of this version of the graph
 		 */
-		public Node(String value, Node parent, DiGraph graph) {
+		public QueryView(WordGraph graph, long version) {
 
 			this.graph = graph;
-			this.history = new ArrayList<>();
-			this.value = value;
-			this.addHistory(parent);
+			this.version = version;
+			if (WordPairs.this.bidirectionalSearch || WordPairs.this.directionOptimizing) {
+				graph.buildReverseIndex();
+			}
+			this.wordChainFinder = new WordChainFinder(graph);
+			this.wordChainFinder.setBidirectional(WordPairs.this.bidirectionalSearch);
+			this.wordChainFinder.setComponentIndex(WordPairs.this.componentIndex);
+			this.wordChainFinder.setLandmarkIndex(WordPairs.this.landmarkIndex);
+			this.reachableWordsFinder = new ReachableWordsFinder(graph);
+			this.reachableWordsFinder.setDirectionOptimizing(WordPairs.this.directionOptimizing);
+			this.reachableWordsFinder.setComponentIndex(WordPairs.this.componentIndex);
 		}
 
 		/**
-		 * A method to add a Node to the history of this Node
+		 * A method to get the number of this version of the graph
 		 * 
-		 * @param parent
-		 *            The Node that is to be added to this Node
+		 * @return The version, starting at 1 for the first view published
 		 */
-		public void addHistory(Node parent) {
-
-			if (parent != null && parent.getHistory() != null) {
-
-				this.history.addAll(parent.getHistory());
-			}
-			if (parent != null) {
+		public long getVersion() {
+			return this.version;
+		}
 
-				this.history.add(parent.value);
-			}
+		/**
+		 * A method to get the number of words in this version of the graph
+		 * 
+		 * @return The number of words
+		 */
+		public int size() {
+			return this.graph.size();
 		}
 
 		/**
-		 * A method to get the history of this Node
+		 * A method to get a word by its number
 		 * 
-		 * @return An ArrayList of Strings containing the history of this Node
+		 * @param id
+		 *            The number of the word, from 0 to size() - 1
+		 * @return The word
 		 */
-		public ArrayList<String> getHistory() {
+		public String getWord(int id) {
+			return this.graph.getWord(id);
+		}
 
-			return this.history;
+		/**
+		 * A method to return the shortest sequence of word pairs that begins
+		 * with first and ends with last, as WordPairs.wordChain does
+		 * 
+		 * @param first
+		 *            The word from which the chain begins
+		 * @param last
+		 *            The word where the chain ends
+		 * @return A string containing the shortest sequence of word pairs
+		 */
+		public String wordChain(String first, String last) {
+			return this.wordChainFinder.wordChain(first, last);
 		}
 
 		/**
-		 * A method to get the level of this Node
+		 * A method to return the number of word pairs in the shortest chain
+		 * from first to last, as WordPairs.chainLength does
 		 * 
-		 * @return The current level of this Node
+		 * @param first
+		 *            The word from which the chain begins
+		 * @param last
+		 *            The word where the chain ends
+		 * @return The number of word pairs, Integer.MAX_VALUE if there is no
+		 *         chain
 		 */
-		public int getLevel() {
+		public int chainLength(String first, String last) {
+			return this.wordChainFinder.chainLength(first, last);
+		}
 
-			return this.history.size();
+		/**
+		 * A method to return the number of distinct words that are part of
+		 * all chains of maxLength that begin with word, as
+		 * WordPairs.reachableFrom does
+		 * 
+		 * @param word
+		 *            The word from which the chains start
+		 * @param maxLength
+		 *            The maximum length of the chains, 0 for no limit
+		 * @return The number of distinct words reached
+		 */
+		public int reachableFrom(String word, int maxLength) {
+			return this.reachableWordsFinder.reachableFrom(word, maxLength);
 		}
 
 		/**
-		 * A method to get the children of this Node
+		 * A method to return the words that are part of all chains of
+		 * maxLength that begin with word, as WordPairs.reachableWords does
 		 * 
-		 * @return An ArrayList of Nodes that contains the children of this Node
+		 * @param word
+		 *            The word from which the chains start
+		 * @param maxLength
+		 *            The maximum length of the chains
+		 * @return A string containing the words grouped by level
 		 */
-		public ArrayList<Node> getChildren() {
+		public String reachableWords(String word, int maxLength) {
+			return this.reachableWordsFinder.reachableWords(word, maxLength);
+		}
 
-			ArrayList<Node> childNodes = new ArrayList<>();
-			Set<String> children = this.graph.getAdjacent(this.value);
-			Iterator<String> it = children.iterator();
-			while (it.hasNext()) {
-				Node node = new Node(it.next(), this, this.graph);
-				childNodes.add(node);
-			}
-			return childNodes;
+		/**
+		 * A method to return the shortest sequence of word pairs that begins
+		 * and ends with word, as WordPairs.cycle does
+		 * 
+		 * @param word
+		 *            The word from which the cycle starts
+		 * @return A string containing the sequence of word pairs
+		 */
+		public String cycle(String word) {
+			return this.wordChainFinder.wordChain(word, word);
 		}
 	}
 }
@@ -0,0 +1,270 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A class to measure how long WordPairs takes to load a file and to answer
+ * its queries on random, power-law and long-chain graphs made by
+ * WordPairsGenerator. The files and the queries come from fixed seeds, and
+ * every measurement is repeated after warming up, so the numbers printed can
+ * be compared between versions of WordPairs to catch slowdowns.
+ * 
+ * Usage: java WordPairsBenchmark [words] [pairsPerWord] [iterations]
+ * 
+ * Every line printed has the shape, the benchmark, the number of words, and
+ * the median, mean and smallest time of one operation in nanoseconds,
+ * separated by commas.
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class WordPairsBenchmark {
+
+	// The number of words in the generated graphs when none is given
+	private static final int DEFAULT_WORDS = 100000;
+	// The number of pairs per word when none is given
+	private static final int DEFAULT_PAIRS_PER_WORD = 5;
+	// The number of measured rounds when none is given
+	private static final int DEFAULT_ITERATIONS = 5;
+	// The number of rounds run before measuring
+	private static final int WARMUP = 2;
+	// The number of queries in every round
+	private static final int QUERIES = 200;
+	// The maximum length used by the depth-limited queries
+	private static final int MAX_LENGTH = 3;
+	// The seed of the files and of the queries
+	private static final long SEED = 42;
+	// The number of landmarks of the landmark index
+	private static final int LANDMARKS = 16;
+
+	// An instance variable to hold the number of measured rounds
+	private int iterations;
+	// An instance variable to hold the results of the queries, so that the
+	// queries cannot be optimized away
+	private long sink = 0;
+
+	/**
+	 * An interface for one operation that is measured
+	 * 
+	 * @author Sanjeeb Sangraula
+	 * 
+	 */
+	interface Operation {
+
+		/**
+		 * A method to run the operation once per round
+		 * 
+		 * @return A number depending on the result, added to the sink
+		 * @throws IOException
+		 *             if a file cannot be read
+		 */
+		long run() throws IOException;
+	}
+
+	/**
+	 * An argument constructor to create a new WordPairsBenchmark
+	 * 
+	 * @param iterations
+	 *            The number of measured rounds
+	 */
+	public WordPairsBenchmark(int iterations) {
+
+		this.iterations = iterations;
+	}
+
+	/**
+	 * The method that generates the graphs and runs all the benchmarks
+	 * 
+	 * @param args
+	 *            Optionally the number of words, the number of pairs per word
+	 *            and the number of measured rounds
+	 * @throws IOException
+	 *             if a file cannot be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+
+		int words = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WORDS;
+		int pairsPerWord = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PAIRS_PER_WORD;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+
+		System.out.println("# java " + System.getProperty("java.version") + ", words " + words + ", pairs per word "
+				+ pairsPerWord + ", iterations " + iterations);
+		System.out.println("shape,benchmark,words,medianNs,meanNs,minNs");
+
+		WordPairsBenchmark benchmark = new WordPairsBenchmark(iterations);
+		for (String shape : new String[] { "random", "powerlaw", "chain" }) {
+			File file = File.createTempFile("wordpairs-" + shape, ".txt");
+			file.deleteOnExit();
+			new WordPairsGenerator(SEED).write(shape, words, pairsPerWord, file.getPath());
+			benchmark.runShape(shape, words, file.getPath());
+			file.delete();
+		}
+	}
+
+	/**
+	 * A method to run all the benchmarks on one generated file
+	 * 
+	 * @param shape
+	 *            The shape of the graph in the file
+	 * @param words
+	 *            The number of words in the file
+	 * @param filename
+	 *            The name of the file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public void runShape(String shape, int words, String filename) throws IOException {
+
+		this.measure(shape, "load", words, 1, () -> new WordPairs(filename).reachableFrom("w0", 1));
+
+		WordPairs wordPairs = new WordPairs(filename);
+
+		Random random = new Random(SEED);
+		String[] firsts = new String[QUERIES];
+		String[] lasts = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			firsts[i] = "w" + random.nextInt(words);
+			lasts[i] = "w" + random.nextInt(words);
+		}
+
+		this.measure(shape, "wordChain", words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.wordChain(firsts[i], lasts[i]).length();
+			}
+			return result;
+		});
+		this.measure(shape, "chainLength", words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.chainLength(firsts[i], lasts[i]);
+			}
+			return result;
+		});
+		this.measure(shape, "reachableFrom" + MAX_LENGTH, words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.reachableFrom(firsts[i], MAX_LENGTH);
+			}
+			return result;
+		});
+		this.measure(shape, "reachableFromAll", words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.reachableFrom(firsts[i]);
+			}
+			return result;
+		});
+		this.measure(shape, "reachableWords" + MAX_LENGTH, words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.reachableWords(firsts[i], MAX_LENGTH).length();
+			}
+			return result;
+		});
+		this.measure(shape, "cycle", words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.cycle(firsts[i]).length();
+			}
+			return result;
+		});
+
+		this.measure(shape, "landmarkBuild", words, 1, () -> {
+			wordPairs.buildLandmarkIndex(LANDMARKS);
+			return wordPairs.getLandmarkIndexMemory();
+		});
+		System.out.println("# " + shape + " landmark index memory " + wordPairs.getLandmarkIndexMemory() + " bytes");
+
+		this.measure(shape, "wordChainLandmarks", words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.wordChain(firsts[i], lasts[i]).length();
+			}
+			return result;
+		});
+		this.measure(shape, "chainLengthLandmarks", words, QUERIES, () -> {
+			long result = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				result += wordPairs.chainLength(firsts[i], lasts[i]);
+			}
+			return result;
+		});
+
+		wordPairs.buildLandmarkIndex(0);
+		for (boolean references : new boolean[] { false, true }) {
+			String name = references ? "References" : "Gaps";
+			wordPairs.setCompression(true, references);
+			System.out.println("# " + shape + " compressed with " + name.toLowerCase() + " "
+					+ String.format("%.2f", wordPairs.getBitsPerEdge()) + " bits per pair");
+
+			this.measure(shape, "wordChain" + name, words, QUERIES, () -> {
+				long result = 0;
+				for (int i = 0; i < QUERIES; i++) {
+					result += wordPairs.wordChain(firsts[i], lasts[i]).length();
+				}
+				return result;
+			});
+			this.measure(shape, "reachableFromAll" + name, words, QUERIES, () -> {
+				long result = 0;
+				for (int i = 0; i < QUERIES; i++) {
+					result += wordPairs.reachableFrom(firsts[i]);
+				}
+				return result;
+			});
+		}
+		wordPairs.setCompression(false, false);
+	}
+
+	/**
+	 * A method to time an operation over the warm-up and measured rounds and
+	 * print one line of results
+	 * 
+	 * @param shape
+	 *            The shape of the graph
+	 * @param name
+	 *            The name of the benchmark
+	 * @param words
+	 *            The number of words in the graph
+	 * @param operations
+	 *            The number of operations in one round
+	 * @param operation
+	 *            The operation to time
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	private void measure(String shape, String name, int words, int operations, Operation operation)
+			throws IOException {
+
+		for (int i = 0; i < WARMUP; i++) {
+			this.sink += operation.run();
+		}
+
+		long[] times = new long[this.iterations];
+		for (int i = 0; i < this.iterations; i++) {
+			long start = System.nanoTime();
+			this.sink += operation.run();
+			times[i] = (System.nanoTime() - start) / operations;
+		}
+
+		Arrays.sort(times);
+		long total = 0;
+		for (long time : times) {
+			total += time;
+		}
+
+		System.out.println(shape + "," + name + "," + words + "," + times[times.length / 2] + ","
+				+ total / times.length + "," + times[0]);
+	}
+
+	/**
+	 * A method to get the sum of the results of all the operations run
+	 * 
+	 * @return The sum, which only exists so the results are used
+	 */
+	public long getSink() {
+
+		return this.sink;
+	}
+}
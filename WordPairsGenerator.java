@@ -0,0 +1,194 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * A class to write files of word pairs with a known shape for measuring
+ * WordPairs. The words are named w0, w1, ... and the same seed always gives
+ * the same file, so files made on different days can be compared.
+ * 
+ * Usage: java WordPairsGenerator random|powerlaw|chain words pairsPerWord
+ * filename [seed]
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class WordPairsGenerator {
+
+	// The seed used when none is given
+	private static final long DEFAULT_SEED = 42;
+	// The power the random numbers are raised to in a power-law graph. The
+	// higher it is, the more the pairs lead to the first few words
+	private static final double SKEW = 3.0;
+
+	// An instance variable to hold the source of the random words
+	private Random random;
+
+	/**
+	 * An argument constructor to create a new WordPairsGenerator
+	 * 
+	 * @param seed
+	 *            The seed of the random words
+	 */
+	public WordPairsGenerator(long seed) {
+
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * The method that writes one file of word pairs
+	 * 
+	 * @param args
+	 *            The shape of the graph, the number of words, the number of
+	 *            pairs per word, the name of the file and optionally the seed
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 4) {
+			System.out.println("Usage: java WordPairsGenerator random|powerlaw|chain words pairsPerWord filename [seed]");
+			return;
+		}
+
+		int words = Integer.parseInt(args[1]);
+		int pairsPerWord = Integer.parseInt(args[2]);
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+
+		new WordPairsGenerator(seed).write(args[0], words, pairsPerWord, args[3]);
+	}
+
+	/**
+	 * A method to write a file of word pairs of a given shape
+	 * 
+	 * @param shape
+	 *            "random" for pairs between any two words, "powerlaw" for
+	 *            pairs that mostly lead to a few words, or "chain" for one
+	 *            long cycle through all the words
+	 * @param words
+	 *            The number of words
+	 * @param pairsPerWord
+	 *            The average number of pairs starting at every word, not used
+	 *            for a chain
+	 * @param filename
+	 *            The name of the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void write(String shape, int words, int pairsPerWord, String filename) throws IOException {
+
+		try (BufferedWriter out = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+			if (shape.equals("random")) {
+				this.writeRandom(out, words, pairsPerWord);
+			} else if (shape.equals("powerlaw")) {
+				this.writePowerLaw(out, words, pairsPerWord);
+			} else if (shape.equals("chain")) {
+				this.writeChain(out, words);
+			} else {
+				throw new IllegalArgumentException("Unknown shape " + shape);
+			}
+		}
+	}
+
+	/**
+	 * A method to write pairs between words chosen uniformly at random. Every
+	 * word starts at least one pair, so every word is in the graph.
+	 * 
+	 * @param out
+	 *            The writer of the file
+	 * @param words
+	 *            The number of words
+	 * @param pairsPerWord
+	 *            The average number of pairs starting at every word
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private void writeRandom(BufferedWriter out, int words, int pairsPerWord) throws IOException {
+
+		for (int i = 0; i < words; i++) {
+			this.writePair(out, i, this.random.nextInt(words));
+		}
+		for (long i = words; i < (long) words * pairsPerWord; i++) {
+			this.writePair(out, this.random.nextInt(words), this.random.nextInt(words));
+		}
+	}
+
+	/**
+	 * A method to write pairs whose second words are mostly among the first
+	 * few words, so a few words have very many pairs leading to them and most
+	 * words have almost none
+	 * 
+	 * @param out
+	 *            The writer of the file
+	 * @param words
+	 *            The number of words
+	 * @param pairsPerWord
+	 *            The average number of pairs starting at every word
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private void writePowerLaw(BufferedWriter out, int words, int pairsPerWord) throws IOException {
+
+		for (int i = 0; i < words; i++) {
+			this.writePair(out, i, this.skewedWord(words));
+		}
+		for (long i = words; i < (long) words * pairsPerWord; i++) {
+			this.writePair(out, this.random.nextInt(words), this.skewedWord(words));
+		}
+	}
+
+	/**
+	 * A method to write one chain through all the words, w0 w1, w1 w2, ...,
+	 * with a last pair back to w0, so the graph is a single cycle as deep as
+	 * the number of words
+	 * 
+	 * @param out
+	 *            The writer of the file
+	 * @param words
+	 *            The number of words
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private void writeChain(BufferedWriter out, int words) throws IOException {
+
+		for (int i = 0; i < words; i++) {
+			this.writePair(out, i, (i + 1) % words);
+		}
+	}
+
+	/**
+	 * A method to choose a word with a strong preference for low numbers
+	 * 
+	 * @param words
+	 *            The number of words
+	 * @return The number of the word
+	 */
+	private int skewedWord(int words) {
+
+		return (int) (words * Math.pow(this.random.nextDouble(), SKEW));
+	}
+
+	/**
+	 * A method to write one line of the file
+	 * 
+	 * @param out
+	 *            The writer of the file
+	 * @param first
+	 *            The number of the first word
+	 * @param second
+	 *            The number of the second word
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private void writePair(BufferedWriter out, int first, int second) throws IOException {
+
+		out.write("w");
+		out.write(Integer.toString(first));
+		out.write(" w");
+		out.write(Integer.toString(second));
+		out.newLine();
+	}
+}
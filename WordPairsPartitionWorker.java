@@ -0,0 +1,396 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A class for one worker process of a PartitionedWordPairs. Every worker reads
+ * the whole file of pairs but only keeps the words whose hash falls in its
+ * partition, with the words they lead to. It then listens on a loopback port,
+ * prints the port on its first line of output, and answers the commands of
+ * the PartitionedWordPairs that started it until it is told to stop.
+ * 
+ * During a search the worker keeps the words of its partition already
+ * reached and the words of its partition in the current level. When asked
+ * to expand the level it sends back the words they lead to, in one batch for
+ * every partition, and when given a batch of words of its partition it keeps
+ * the ones not reached yet as its part of the next level.
+ * 
+ * Usage: java WordPairsPartitionWorker filename partition partitions
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class WordPairsPartitionWorker {
+
+	// The command to forget the words reached by the last search
+	static final byte RESET = 1;
+	// The command to start a level with a batch of words, and mark them as
+	// reached if asked to
+	static final byte SEED = 2;
+	// The command to expand the current level
+	static final byte EXPAND = 3;
+	// The command to keep the words of a batch not reached yet as the next
+	// level
+	static final byte VISIT = 4;
+	// The command to check whether a word is in the graph
+	static final byte CONTAINS = 5;
+	// The command to stop the worker
+	static final byte SHUTDOWN = 6;
+
+	// An instance variable to hold the number of this worker's partition
+	private int partition;
+	// An instance variable to hold the number of partitions
+	private int partitions;
+	// An instance variable to map every word of the partition to the words
+	// it leads to
+	private Map<String, String[]> adjacent = new HashMap<>();
+	// An instance variable to hold the words of the partition reached by the
+	// current search
+	private Set<String> reached = new HashSet<>();
+	// An instance variable to hold the words of the partition in the current
+	// level of the search
+	private List<String> level = new ArrayList<>();
+
+	/**
+	 * An argument constructor to create a new WordPairsPartitionWorker
+	 * 
+	 * @param partition
+	 *            The number of this worker's partition
+	 * @param partitions
+	 *            The number of partitions
+	 */
+	public WordPairsPartitionWorker(int partition, int partitions) {
+
+		this.partition = partition;
+		this.partitions = partitions;
+	}
+
+	/**
+	 * The method that reads the partition, prints the port and answers
+	 * commands until told to stop
+	 * 
+	 * @param args
+	 *            The name of the file of pairs, the number of this worker's
+	 *            partition and the number of partitions
+	 * @throws IOException
+	 *             if the file cannot be read or the connection fails
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 3) {
+			System.out.println("Usage: java WordPairsPartitionWorker filename partition partitions");
+			return;
+		}
+
+		WordPairsPartitionWorker worker = new WordPairsPartitionWorker(Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]));
+		worker.readFile(args[0]);
+
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			System.out.println("PORT " + server.getLocalPort());
+			System.out.flush();
+			try (Socket socket = server.accept()) {
+				socket.setTcpNoDelay(true);
+				worker.serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+						new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+			}
+		}
+	}
+
+	/**
+	 * A method to get the partition a word belongs to
+	 * 
+	 * @param word
+	 *            The word, null for the missing word of a line with fewer
+	 *            than two words
+	 * @param partitions
+	 *            The number of partitions
+	 * @return The number of the partition
+	 */
+	static int partitionOf(String word, int partitions) {
+
+		return word == null ? 0 : Math.floorMod(word.hashCode(), partitions);
+	}
+
+	/**
+	 * A method to send a word, which may be null
+	 * 
+	 * @param out
+	 *            The stream to send it on
+	 * @param word
+	 *            The word
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	static void writeWord(DataOutputStream out, String word) throws IOException {
+
+		out.writeBoolean(word != null);
+		if (word != null) {
+			out.writeUTF(word);
+		}
+	}
+
+	/**
+	 * A method to receive a word sent with writeWord
+	 * 
+	 * @param in
+	 *            The stream to read it from
+	 * @return The word, which may be null
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	static String readWord(DataInputStream in) throws IOException {
+
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * A method to send a batch of words
+	 * 
+	 * @param out
+	 *            The stream to send it on
+	 * @param words
+	 *            The words
+	 * @param size
+	 *            The number of words
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	static void writeBatch(DataOutputStream out, Iterable<String> words, int size) throws IOException {
+
+		out.writeInt(size);
+		for (String word : words) {
+			writeWord(out, word);
+		}
+	}
+
+	/**
+	 * A method to receive a batch of words sent with writeBatch
+	 * 
+	 * @param in
+	 *            The stream to read it from
+	 * @return The words
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	static List<String> readBatch(DataInputStream in) throws IOException {
+
+		int size = in.readInt();
+		List<String> words = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			words.add(readWord(in));
+		}
+		return words;
+	}
+
+	/**
+	 * A method to read the file of pairs and keep the words of this
+	 * partition. The lines are split the same way the file loader of
+	 * WordPairs splits them: a line ends at \n, \r or \r\n, the words are
+	 * separated by ASCII whitespace, and a line with fewer than two words
+	 * still adds a pair with the missing words as null. Reading the file as
+	 * ISO-8859-1 keeps one char per byte, and the words are then decoded as
+	 * UTF-8.
+	 * 
+	 * @param filename
+	 *            The name of the file of pairs
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public void readFile(String filename) throws IOException {
+
+		Map<String, Set<String>> lists = new HashMap<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.ISO_8859_1)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+
+				String first = null, second = null;
+
+				int start = skipWhitespace(line, 0);
+				int end = skipWord(line, start);
+				if (start < end) {
+					first = decode(line, start, end);
+					start = skipWhitespace(line, end);
+					end = skipWord(line, start);
+					if (start < end) {
+						second = decode(line, start, end);
+					}
+				}
+
+				if (partitionOf(first, this.partitions) == this.partition) {
+					lists.computeIfAbsent(first, word -> new LinkedHashSet<>()).add(second);
+				}
+				if (partitionOf(second, this.partitions) == this.partition) {
+					lists.computeIfAbsent(second, word -> new LinkedHashSet<>());
+				}
+			}
+		}
+
+		for (Map.Entry<String, Set<String>> entry : lists.entrySet()) {
+			this.adjacent.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+		}
+	}
+
+	/**
+	 * A method to find the first character that is not whitespace
+	 * 
+	 * @param line
+	 *            the line to look through
+	 * @param from
+	 *            the position to start looking from
+	 * @return the position of the first character at or after from that is
+	 *         not whitespace, or the length of the line
+	 */
+	private static int skipWhitespace(String line, int from) {
+
+		while (from < line.length() && isWhitespace(line.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * A method to find the end of the word that starts at a position
+	 * 
+	 * @param line
+	 *            the line to look through
+	 * @param from
+	 *            the position where the word starts
+	 * @return the position of the first whitespace character at or after
+	 *         from, or the length of the line
+	 */
+	private static int skipWord(String line, int from) {
+
+		while (from < line.length() && !isWhitespace(line.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * A method to check whether a character is an ASCII whitespace character
+	 * 
+	 * @param c
+	 *            The character to check
+	 * @return True if the character is a space, tab, form feed or vertical
+	 *         tab
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\f' || c == 0x0B || c == 0x1C || c == 0x1D || c == 0x1E || c == 0x1F;
+	}
+
+	/**
+	 * A method to make a word from the UTF-8 bytes held by part of a line
+	 * read as ISO-8859-1
+	 * 
+	 * @param line
+	 *            The line holding the word
+	 * @param from
+	 *            The position where the word starts
+	 * @param to
+	 *            The position just after the word ends
+	 * @return The word
+	 */
+	private static String decode(String line, int from, int to) {
+
+		return new String(line.substring(from, to).getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A method to answer commands until told to stop or the connection is
+	 * closed
+	 * 
+	 * @param in
+	 *            The stream the commands come from
+	 * @param out
+	 *            The stream the answers go to
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	public void serve(DataInputStream in, DataOutputStream out) throws IOException {
+
+		while (true) {
+			byte command = in.readByte();
+
+			if (command == RESET) {
+				this.reached.clear();
+				this.level.clear();
+			} else if (command == SEED) {
+				boolean mark = in.readBoolean();
+				for (String word : readBatch(in)) {
+					this.level.add(word);
+					if (mark) {
+						this.reached.add(word);
+					}
+				}
+			} else if (command == EXPAND) {
+				this.expand(out);
+			} else if (command == VISIT) {
+				for (String word : readBatch(in)) {
+					if (this.adjacent.containsKey(word) && this.reached.add(word)) {
+						this.level.add(word);
+					}
+				}
+				out.writeInt(this.level.size());
+				out.flush();
+			} else if (command == CONTAINS) {
+				out.writeBoolean(this.adjacent.containsKey(readWord(in)));
+				out.flush();
+			} else if (command == SHUTDOWN) {
+				return;
+			} else {
+				throw new IOException("Unknown command " + command);
+			}
+		}
+	}
+
+	/**
+	 * A method to expand the current level and send the words it leads to,
+	 * in one batch for every partition, without repeating a word in a batch
+	 * 
+	 * @param out
+	 *            The stream the batches go to
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	private void expand(DataOutputStream out) throws IOException {
+
+		List<Set<String>> batches = new ArrayList<>(this.partitions);
+		for (int p = 0; p < this.partitions; p++) {
+			batches.add(new LinkedHashSet<>());
+		}
+
+		for (String word : this.level) {
+			String[] next = this.adjacent.get(word);
+			if (next == null) {
+				continue;
+			}
+			for (String child : next) {
+				batches.get(partitionOf(child, this.partitions)).add(child);
+			}
+		}
+		this.level.clear();
+
+		for (Set<String> batch : batches) {
+			writeBatch(out, batch, batch.size());
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,210 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class to fire many concurrent queries at the QueryViews of a WordPairs
+ * while new lines are being published, and to report the throughput. Every
+ * query runs on its own virtual thread when the Java version has them, and on
+ * a fixed pool of threads otherwise.
+ * 
+ * Usage: java WordPairsQueryDriver filename [queries] [newLines]
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class WordPairsQueryDriver {
+
+	// The number of queries fired when none is given
+	private static final int DEFAULT_QUERIES = 10000;
+	// The number of lines published while the queries run when none is given
+	private static final int DEFAULT_NEW_LINES = 100;
+	// The number of lines in every batch that is published
+	private static final int BATCH = 10;
+
+	// An instance variable to hold the WordPairs being queried
+	private WordPairs wordPairs;
+	// An instance variable to count the queries answered
+	private AtomicLong answered = new AtomicLong();
+	// An instance variable to count the queries that saw a newer version
+	// than the first one
+	private AtomicLong newerViews = new AtomicLong();
+
+	/**
+	 * An argument constructor to create a new WordPairsQueryDriver
+	 * 
+	 * @param wordPairs
+	 *            The WordPairs to query
+	 */
+	public WordPairsQueryDriver(WordPairs wordPairs) {
+
+		this.wordPairs = wordPairs;
+	}
+
+	/**
+	 * The method that reads the file, runs the queries and prints the
+	 * throughput
+	 * 
+	 * @param args
+	 *            The name of the file of pairs, then optionally the number of
+	 *            queries and the number of lines to publish during the run
+	 * @throws Exception
+	 *             if a query fails
+	 */
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 1) {
+			System.out.println("Usage: java WordPairsQueryDriver filename [queries] [newLines]");
+			return;
+		}
+
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_QUERIES;
+		int newLines = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_NEW_LINES;
+
+		WordPairsQueryDriver driver = new WordPairsQueryDriver(new WordPairs(args[0]));
+		driver.run(queries, newLines);
+	}
+
+	/**
+	 * A method to fire the queries, publish new lines while they run, and
+	 * print the throughput
+	 * 
+	 * @param queries
+	 *            The number of queries to fire
+	 * @param newLines
+	 *            The number of new lines to publish during the run
+	 * @throws InterruptedException
+	 *             if the driver is interrupted while waiting
+	 * @throws ExecutionException
+	 *             if a query throws an exception
+	 */
+	public void run(int queries, int newLines) throws InterruptedException, ExecutionException {
+
+		WordPairs.QueryView first = this.wordPairs.getQueryView();
+		if (first.size() == 0) {
+			System.out.println("The graph has no words");
+			return;
+		}
+
+		ExecutorService executor = newQueryExecutor();
+		List<Future<?>> futures = new ArrayList<>(queries);
+
+		long start = System.nanoTime();
+
+		for (int i = 0; i < queries; i++) {
+			final long seed = i;
+			futures.add(executor.submit(() -> this.query(new Random(seed), first.getVersion())));
+		}
+
+		this.publishNewLines(first, newLines);
+
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		double seconds = elapsed / 1e9;
+		System.out.println("Executor: " + (isVirtual(executor) ? "virtual threads" : "thread pool"));
+		System.out.println("Queries answered: " + this.answered.get());
+		System.out.println("Queries on a newer version: " + this.newerViews.get());
+		System.out.println("Versions published: " + this.wordPairs.getQueryView().getVersion());
+		System.out.printf("Elapsed: %.3f s%n", seconds);
+		System.out.printf("Throughput: %.0f queries/s%n", this.answered.get() / seconds);
+	}
+
+	/**
+	 * A method to run one random query on the latest QueryView
+	 * 
+	 * @param random
+	 *            The source of the words and the kind of query
+	 * @param firstVersion
+	 *            The version of the view when the run started
+	 */
+	private void query(Random random, long firstVersion) {
+
+		WordPairs.QueryView view = this.wordPairs.getQueryView();
+		if (view.getVersion() > firstVersion) {
+			this.newerViews.incrementAndGet();
+		}
+
+		String first = view.getWord(random.nextInt(view.size()));
+		String last = view.getWord(random.nextInt(view.size()));
+
+		switch (random.nextInt(4)) {
+		case 0:
+			view.wordChain(first, last);
+			break;
+		case 1:
+			view.chainLength(first, last);
+			break;
+		case 2:
+			view.reachableFrom(first, 1 + random.nextInt(4));
+			break;
+		default:
+			view.cycle(first);
+			break;
+		}
+		this.answered.incrementAndGet();
+	}
+
+	/**
+	 * A method to publish new lines in batches, joining random words of the
+	 * graph
+	 * 
+	 * @param view
+	 *            The view to take the words from
+	 * @param newLines
+	 *            The number of lines to publish
+	 */
+	private void publishNewLines(WordPairs.QueryView view, int newLines) {
+
+		Random random = new Random(-1);
+		List<String> batch = new ArrayList<>();
+
+		for (int i = 0; i < newLines; i++) {
+			batch.add(view.getWord(random.nextInt(view.size())) + " " + view.getWord(random.nextInt(view.size())));
+			if (batch.size() == BATCH || i == newLines - 1) {
+				this.wordPairs.publishLines(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * A method to get an executor that starts a virtual thread for every
+	 * task. Virtual threads are looked up by reflection so that this class
+	 * also compiles and runs on Java versions without them, where a fixed
+	 * pool of threads is used instead.
+	 * 
+	 * @return The executor to run the queries on
+	 */
+	private static ExecutorService newQueryExecutor() {
+
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	/**
+	 * A method to check whether an executor runs its tasks on virtual threads
+	 * 
+	 * @param executor
+	 *            The executor to check
+	 * @return True if the executor is not a fixed pool of threads
+	 */
+	private static boolean isVirtual(ExecutorService executor) {
+
+		return !(executor instanceof ThreadPoolExecutor);
+	}
+}
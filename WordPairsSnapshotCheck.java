@@ -0,0 +1,166 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A class to check that a snapshot file gives back the same graph as the
+ * text file it was made from. The graph read from the text file is saved to
+ * a snapshot file, the snapshot file is opened again both on the heap and
+ * memory mapped outside the heap, and every query is asked of each for
+ * every word of the text file and for the null word that
+ * a line with fewer than two words adds, such as a blank line.
+ * 
+ * Usage: java WordPairsSnapshotCheck filename...
+ * 
+ * Every file checked prints one line with the number of answers that
+ * differed, and the program exits with status 1 if any did.
+ * 
+ * @author Sanjeeb Sangraula
+ * 
+ */
+public class WordPairsSnapshotCheck {
+
+	// The maximum length used by the depth-limited queries
+	private static final int MAX_LENGTH = 2;
+
+	// An instance variable to hold the WordPairs read from the text file
+	private WordPairs original;
+	// An instance variable to hold the number of answers that differed
+	private int differences = 0;
+
+	/**
+	 * An argument constructor to create a new WordPairsSnapshotCheck
+	 * 
+	 * @param original
+	 *            The WordPairs read from the text file
+	 */
+	public WordPairsSnapshotCheck(WordPairs original) {
+
+		this.original = original;
+	}
+
+	/**
+	 * The method that checks every file given
+	 * 
+	 * @param args
+	 *            The names of the text files to check
+	 * @throws IOException
+	 *             if a file cannot be read or the snapshot cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.out.println("Usage: java WordPairsSnapshotCheck filename...");
+			return;
+		}
+
+		int differences = 0;
+		for (String filename : args) {
+			differences += check(filename);
+		}
+		if (differences > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A method to save the graph of one text file to a snapshot file, open it
+	 * again and compare the answers
+	 * 
+	 * @param filename
+	 *            The name of the text file
+	 * @return The number of answers that differed
+	 * @throws IOException
+	 *             if the file cannot be read or the snapshot cannot be written
+	 */
+	public static int check(String filename) throws IOException {
+
+		File snapshot = File.createTempFile("wordpairs-check", ".snapshot");
+		snapshot.deleteOnExit();
+
+		WordPairs original = new WordPairs(filename);
+		original.writeSnapshot(snapshot.getPath());
+
+		List<String> words = getWords(filename);
+		WordPairsSnapshotCheck check = new WordPairsSnapshotCheck(original);
+		check.compare(new WordPairs(filename, snapshot.getPath(), false), words);
+		check.compare(new WordPairs(filename, snapshot.getPath(), true), words);
+
+		snapshot.delete();
+		System.out.println(filename + ": " + words.size() + " words, " + check.differences + " differences");
+		return check.differences;
+	}
+
+	/**
+	 * A method to get the words of a text file to ask about, with the null
+	 * word first
+	 * 
+	 * @param filename
+	 *            The name of the text file
+	 * @return The words, without repeats
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static List<String> getWords(String filename) throws IOException {
+
+		Set<String> words = new LinkedHashSet<>();
+		words.add(null);
+		for (String line : Files.readAllLines(Paths.get(filename), StandardCharsets.ISO_8859_1)) {
+			for (String word : line.trim().split("\\s+")) {
+				if (!word.isEmpty()) {
+					words.add(new String(word.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * A method to ask the same queries of the original WordPairs and of one
+	 * opened from the snapshot file, counting the answers that differ
+	 * 
+	 * @param opened
+	 *            The WordPairs opened from the snapshot file
+	 * @param words
+	 *            The words to ask about
+	 */
+	private void compare(WordPairs opened, List<String> words) {
+
+		for (int i = 0; i < words.size(); i++) {
+
+			String word = words.get(i);
+			String next = words.get((i + 1) % words.size());
+
+			this.expect(word, this.original.reachableFrom(word), opened.reachableFrom(word));
+			this.expect(word, this.original.reachableFrom(word, MAX_LENGTH), opened.reachableFrom(word, MAX_LENGTH));
+			this.expect(word, this.original.reachableWords(word, MAX_LENGTH), opened.reachableWords(word, MAX_LENGTH));
+			this.expect(word, this.original.cycle(word), opened.cycle(word));
+			this.expect(word, this.original.chainLength(word, next), opened.chainLength(word, next));
+			this.expect(word, this.original.wordChain(word, next), opened.wordChain(word, next));
+		}
+	}
+
+	/**
+	 * A method to count and print an answer that differs
+	 * 
+	 * @param word
+	 *            The word asked about
+	 * @param expected
+	 *            The answer of the original WordPairs
+	 * @param actual
+	 *            The answer of the WordPairs opened from the snapshot file
+	 */
+	private void expect(String word, Object expected, Object actual) {
+
+		if (!expected.equals(actual)) {
+			this.differences++;
+			System.out.println("  " + word + ": expected " + expected + ", got " + actual);
+		}
+	}
+}